@@ -14,6 +14,8 @@ TOC_LEVELS="3"
 DESCRIPTION="Generated from Docusaurus"
 MIN_PAGES="5"
 MIN_TOC_ITEMS="0"
+LINEARIZE=""              # set to "--linearize" for fast web view output
+UPDATE=""                 # set to "--update" to patch the previous PDF instead of regenerating it
 
 # CLI JAR
 JAR="target/pdfgen-0.2.0-jar-with-dependencies.jar"
@@ -47,13 +49,20 @@ fi
 
 # Step 2: Generate PDF
 log "Generating PDF..."
-java -jar "$JAR" --input "$BUILD_DIR/docs" --output "$OUTPUT_PDF" --sitemap "$SITEMAP_JSON" --css "$PRINT_CSS"
+java -jar "$JAR" --input "$BUILD_DIR/docs" --output "$OUTPUT_PDF" --sitemap "$SITEMAP_JSON" --css "$PRINT_CSS" $UPDATE
 check_file_exists "$OUTPUT_PDF"
 
 # Step 3: Enhance Metadata
-log "Enhancing PDF metadata..."
-java -jar "$JAR" metadata --input "$OUTPUT_PDF" --title "$TITLE" --toc-levels "$TOC_LEVELS" --description "$DESCRIPTION"
-check_file_exists "$OUTPUT_PDF"
+# A full generation records its own size as baseBytes in the manifest; an update appends past it.
+# metadata and --linearize rewrite every byte, so they would turn an update into a full rewrite.
+BASE_BYTES=$(grep -o '"baseBytes" *: *[0-9]*' "$OUTPUT_PDF.manifest.json" | grep -o '[0-9]*$' || true)
+if [[ -n "$UPDATE" && "$BASE_BYTES" != "$(wc -c < "$OUTPUT_PDF" | tr -d ' ')" ]]; then
+  log "PDF was updated incrementally; skipping metadata and linearization, which rewrite the file"
+else
+  log "Enhancing PDF metadata..."
+  java -jar "$JAR" metadata --input "$OUTPUT_PDF" --title "$TITLE" --toc-levels "$TOC_LEVELS" --description "$DESCRIPTION" $LINEARIZE
+  check_file_exists "$OUTPUT_PDF"
+fi
 
 # Step 4: Validate PDF
 log "Validating PDF..."
@@ -0,0 +1,709 @@
+package tn.eternity;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineNode;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import tn.eternity.model.DocumentationPage;
+import tn.eternity.model.GenerationRequest;
+import tn.eternity.model.GenerationResult;
+import tn.eternity.model.PageError;
+import tn.eternity.model.PageSection;
+import tn.eternity.model.PageTiming;
+import tn.eternity.model.PdfManifest;
+import tn.eternity.model.SidebarItem;
+import tn.eternity.util.PageRenderer;
+import tn.eternity.util.PageScheduler;
+import tn.eternity.util.PdfLinearizer;
+import tn.eternity.util.PdfPatcher;
+import tn.eternity.util.PdfUtils;
+import tn.eternity.util.RenderCache;
+import tn.eternity.util.RenderStats;
+import tn.eternity.util.SearchIndexBuilder;
+import tn.eternity.util.SidebarParser;
+import tn.eternity.util.SidebarScriptParser;
+
+/**
+ * One run of the generator. All mutable state (document, outline, page map, sidebar structure)
+ * lives here, so concurrent jobs never share it; only the {@link RenderCache} is shared. Jobs
+ * are single-use and never call {@code System.exit}: failures surface as exceptions and pages
+ * that fail to render are reported in {@link GenerationResult#pageErrors}.
+ */
+class GenerationJob {
+
+  private final GenerationRequest request;
+  private final RenderCache renderCache;
+  private final PrintStream log;
+  private volatile boolean cancelled;
+
+  private final Map<String, PDPage> pageMap = new HashMap<>();
+  private final List<PageTiming> timings = new ArrayList<>();
+  private final List<PageError> pageErrors = new ArrayList<>();
+  // Documents owning the added pages; closed only after the target document is saved
+  private final List<PDDocument> pageDocuments = new ArrayList<>();
+  // Pages in PDF order, with the manifest entry of each
+  private final List<PDPage> pageOrder = new ArrayList<>();
+  private final List<PdfManifest.Entry> manifestEntries = new ArrayList<>();
+  private final Map<Path, String> contentHashes = new HashMap<>();
+  private final Map<Path, String> lastModified = new HashMap<>();
+  // Incremental update state; patcher stays null for a full generation
+  private PdfPatcher patcher;
+  private PdfManifest previousManifest;
+  private final Map<String, Deque<PdfManifest.Entry>> reusable = new HashMap<>();
+  private int reusedPages;
+  private Map<Path, PageRenderer.RenderResult> prerendered = new HashMap<>();
+  private Map<Path, Exception> renderFailures = new HashMap<>();
+  private SearchIndexBuilder searchIndex;
+  private List<DocumentationPage> sitemapPages;
+  private List<SidebarItem> sidebarStructure;
+  private Path docsDir;
+
+  private PDDocument document;
+  private PageRenderer renderer;
+  private PDDocumentOutline outline;
+
+  /**
+   * @param request What to generate
+   * @param renderCache Caches shared with other jobs in this JVM
+   * @param log Stream for progress messages, or null for none
+   */
+  GenerationJob(GenerationRequest request, RenderCache renderCache, PrintStream log) {
+    this.request = request;
+    this.renderCache = renderCache;
+    this.log = log != null ? log : new PrintStream(OutputStream.nullOutputStream());
+  }
+
+  /** Stops the job at the next page boundary; {@link #run} then throws. */
+  void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Renders every page and writes the PDF (and search index, if requested). For an update, only
+   * pages whose source changed are rendered and the difference is appended to the existing PDF.
+   *
+   * @return Page count, timings and per-page errors
+   * @throws CancellationException if {@link #cancel} was called or the thread was interrupted
+   * @throws Exception if the page structure cannot be read or the PDF cannot be written
+   */
+  GenerationResult run() throws Exception {
+    if (request.outputFile == null) {
+      throw new IllegalArgumentException("An output file must be provided.");
+    }
+    long start = System.nanoTime();
+    RenderStats stats =
+        RenderStats.load(statsPath(), Paths.get(request.inputDir), this::logWarning);
+
+    try (PageRenderer pageRenderer =
+        new PageRenderer(
+            request.cssFile,
+            request.pageTimeoutSeconds * 1000,
+            request.pageAllocationMb << 20,
+            renderCache)) {
+      renderer = pageRenderer;
+      renderer.setSiteRoot(Paths.get(request.inputDir));
+      renderer.setErrorLog(this::logError);
+      if (request.searchIndexFile != null) {
+        searchIndex = new SearchIndexBuilder();
+        renderer.setExtractSections(true);
+      }
+
+      Map<Path, String> sources = collectSources();
+      if (request.update && openPreviousPdf()) {
+        sources = changedSources(sources);
+      }
+      logInfo("Rendering " + sources.size() + " pages on " + request.threads + " threads...");
+      Map<Path, Exception> failures = new ConcurrentHashMap<>();
+      prerendered =
+          new PageScheduler(stats, request.threads)
+              .renderAll(renderer, sources, failures, () -> cancelled);
+      renderFailures = failures;
+      checkCancelled();
+
+      if (patcher == null) {
+        document = new PDDocument();
+      }
+      if (!request.noToc) {
+        outline = new PDDocumentOutline();
+        // An update compares the new outline with the old one before installing anything
+        if (patcher == null) {
+          document.getDocumentCatalog().setDocumentOutline(outline);
+        }
+      }
+      if (sitemapPages != null) {
+        generatePdfFromSitemap();
+      } else {
+        logInfo("Processing structured pages...");
+        processStructuredPages();
+      }
+      checkCancelled();
+
+      GenerationResult result = new GenerationResult(request.outputFile);
+      result.pages = pageOrder.size();
+      result.reusedPages = reusedPages;
+      if (patcher != null) {
+        savePatch();
+        writeManifest(previousManifest.baseBytes);
+      } else {
+        logInfo("Saving PDF to " + request.outputFile);
+        document.save(request.outputFile);
+        if (request.linearize) {
+          PdfLinearizer.linearize(new File(request.outputFile));
+          logInfo("PDF linearized for fast web view");
+        }
+        logInfo("Structured PDF generated: " + request.outputFile);
+        writeManifest(Files.size(Paths.get(request.outputFile)));
+      }
+      if (searchIndex != null) {
+        String pdfName = Paths.get(request.outputFile).getFileName().toString();
+        searchIndex.write(new File(request.searchIndexFile), pdfName);
+        logInfo(
+            "Search index written: "
+                + request.searchIndexFile
+                + " ("
+                + searchIndex.termCount()
+                + " terms, "
+                + searchIndex.sectionCount()
+                + " sections)");
+      }
+
+      stats.record(timings);
+      stats.save();
+
+      result.timings = timings;
+      result.pageErrors = pageErrors;
+      result.renderMillis = timings.stream().mapToLong(t -> t.renderMillis).sum();
+      result.wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      return result;
+    } finally {
+      if (document != null) {
+        document.close();
+      }
+      for (PDDocument pageDocument : pageDocuments) {
+        pageDocument.close();
+      }
+      for (PageRenderer.RenderResult unused : prerendered.values()) {
+        unused.document.close();
+      }
+    }
+  }
+
+  /**
+   * Prints the predicted render schedule without rendering anything.
+   *
+   * @param top Number of most expensive pages to list
+   * @throws IOException if the page structure cannot be read
+   */
+  void printPlan(int top) throws IOException {
+    RenderStats stats =
+        RenderStats.load(statsPath(), Paths.get(request.inputDir), this::logWarning);
+    PageScheduler scheduler = new PageScheduler(stats, request.threads);
+    scheduler.printPlan(collectSources().keySet(), top, log);
+  }
+
+  private Path statsPath() {
+    if (request.statsFile != null) return Paths.get(request.statsFile);
+    return request.outputFile != null ? Paths.get(request.outputFile + ".stats.json") : null;
+  }
+
+  private Path manifestPath() {
+    if (request.manifestFile != null) return Paths.get(request.manifestFile);
+    return Paths.get(request.outputFile + ".manifest.json");
+  }
+
+  /**
+   * Opens the previous PDF for an incremental update.
+   *
+   * @return false, after logging why, if the PDF has to be generated in full instead
+   */
+  private boolean openPreviousPdf() throws IOException {
+    File pdf = new File(request.outputFile);
+    File manifestFile = manifestPath().toFile();
+    String reason = null;
+    if (!pdf.isFile() || !manifestFile.isFile()) {
+      reason = "no previous PDF and manifest";
+    } else {
+      try {
+        previousManifest = new ObjectMapper().readValue(manifestFile, PdfManifest.class);
+        if (!settingsHash().equals(previousManifest.settingsHash)) {
+          reason = "print CSS or outline settings changed";
+        } else if (pdf.length() > 2 * previousManifest.baseBytes) {
+          // Replaced pages stay in the file as garbage until it is rewritten
+          reason = "earlier updates doubled the file size";
+        } else {
+          patcher = new PdfPatcher(pdf);
+          document = patcher.document();
+          List<PdfManifest.Entry> entries = previousManifest.pages;
+          PdfManifest.Entry last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+          int expected = last == null ? 0 : last.firstPage + last.pageCount - 1;
+          if (expected != patcher.originalPages().size()) {
+            reason = "the PDF's pages no longer match the manifest";
+          }
+        }
+      } catch (IOException e) {
+        reason = "previous PDF or manifest unreadable (" + e.getMessage() + ")";
+      }
+    }
+    if (reason != null) {
+      logInfo("Generating the whole PDF: " + reason);
+      if (patcher != null) {
+        patcher.close();
+        patcher = null;
+        document = null;
+      }
+      previousManifest = null;
+      return false;
+    }
+    for (PdfManifest.Entry entry : previousManifest.pages) {
+      reusable.computeIfAbsent(entry.source, k -> new ArrayDeque<>()).addLast(entry);
+    }
+    return true;
+  }
+
+  /** Keeps only the sources the previous PDF cannot provide: new or changed pages. */
+  private Map<Path, String> changedSources(Map<Path, String> sources) throws IOException {
+    Map<Path, String> changed = new LinkedHashMap<>();
+    for (Map.Entry<Path, String> source : sources.entrySet()) {
+      Deque<PdfManifest.Entry> previous = reusable.get(sourceKey(source.getKey()));
+      if (previous == null || !unchanged(previous.peekFirst(), source.getKey())) {
+        changed.put(source.getKey(), source.getValue());
+      }
+    }
+    logInfo(
+        changed.size()
+            + " of "
+            + sources.size()
+            + " pages changed since "
+            + previousManifest.generatedAt);
+    return changed;
+  }
+
+  private boolean unchanged(PdfManifest.Entry entry, Path htmlPath) throws IOException {
+    // The sitemap's lastmod is often only a date, so the content hash decides; a different
+    // lastmod still forces a re-render
+    String modified = lastModified.get(htmlPath);
+    boolean sameDate =
+        modified == null || entry.lastModified == null || modified.equals(entry.lastModified);
+    return sameDate && contentHash(htmlPath).equals(entry.contentHash);
+  }
+
+  private String contentHash(Path htmlPath) throws IOException {
+    String hash = contentHashes.get(htmlPath);
+    if (hash == null) {
+      hash = PdfUtils.sha256(Files.readAllBytes(htmlPath));
+      contentHashes.put(htmlPath, hash);
+    }
+    return hash;
+  }
+
+  /** Hash of the settings that change every page or the outline, see the manifest. */
+  private String settingsHash() throws IOException {
+    // Read through the shared cache so the hash matches the CSS the pages are rendered with
+    String css =
+        request.cssFile != null ? renderCache.stylesheet(Paths.get(request.cssFile)) : "";
+    String settings =
+        css + "\nnoToc=" + request.noToc + "\nsitemap=" + (request.sitemapJson != null);
+    return PdfUtils.sha256(settings.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Manifest key of a source page: its path relative to the input directory. */
+  private String sourceKey(Path htmlPath) {
+    Path input = Paths.get(request.inputDir);
+    Path relative = htmlPath.startsWith(input) ? input.relativize(htmlPath) : htmlPath;
+    return relative.toString().replace(File.separatorChar, '/');
+  }
+
+  private void savePatch() throws IOException {
+    patcher.setPages(pageOrder);
+    patcher.setOutline(outline);
+    int rendered = pageOrder.size() - reusedPages;
+    int dropped = patcher.originalPages().size() - reusedPages;
+    String summary =
+        rendered + " pages rendered, " + reusedPages + " kept, " + dropped + " replaced or removed";
+    if (!patcher.hasChanges()) {
+      patcher.close();
+      logInfo("PDF is up to date: " + summary);
+      return;
+    }
+    long appended = patcher.save();
+    logInfo(
+        "Incremental update appended to "
+            + request.outputFile
+            + ": "
+            + (appended >> 10)
+            + " KB, "
+            + summary);
+  }
+
+  private void writeManifest(long baseBytes) throws IOException {
+    PdfManifest manifest = new PdfManifest();
+    manifest.generatedAt = Instant.now().toString();
+    manifest.settingsHash = settingsHash();
+    manifest.baseBytes = baseBytes;
+    manifest.pages = manifestEntries;
+    PdfUtils.writeJson(manifest, manifestPath().toFile());
+  }
+
+  private Map<Path, String> collectSources() throws IOException {
+    if (request.sitemapJson != null) {
+      logInfo("Using sitemap-based document structure...");
+      sitemapPages =
+          new ObjectMapper().readValue(new File(request.sitemapJson), new TypeReference<>() {});
+      return collectSitemapSources();
+    }
+    logInfo("Parsing sidebar config...");
+    parseSidebarConfig();
+    return collectSidebarSources();
+  }
+
+  private void checkCancelled() {
+    if (cancelled || Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Generation of " + request.outputFile + " was cancelled");
+    }
+  }
+
+  private void parseSidebarConfig() throws IOException {
+    Map<String, Object> sidebarData;
+    String sidebarConfig = request.sidebarConfig;
+    if (sidebarConfig.matches(".*\\.(ts|js|mjs|cjs)$")) {
+      // Read sidebars.ts/js natively, no Node.js round-trip to JSON
+      sidebarData = SidebarScriptParser.parse(Paths.get(sidebarConfig));
+    } else {
+      ObjectMapper mapper = new ObjectMapper();
+      sidebarData =
+          mapper.readValue(new File(sidebarConfig), new TypeReference<Map<String, Object>>() {});
+    }
+    Object sidebar = sidebarData.get("docsSidebar");
+    if (sidebar == null && !sidebarData.isEmpty()) {
+      // Fall back to the first declared sidebar (e.g. "tutorialSidebar")
+      Map.Entry<String, Object> first = sidebarData.entrySet().iterator().next();
+      logInfo("No 'docsSidebar' found, using '" + first.getKey() + "'");
+      sidebar = first.getValue();
+    }
+    sidebarStructure =
+        SidebarParser.parseSidebarItems(sidebar, resolveDocsDir(), sourceDocsDir(sidebarConfig));
+  }
+
+  /**
+   * Finds the Markdown docs a sidebar file belongs to, which order autogenerated sidebars:
+   * {@code docs/} next to {@code sidebars.js}, or {@code versioned_docs/version-X/} for
+   * {@code versioned_sidebars/version-X-sidebars.json}.
+   *
+   * @return The source docs directory, or null if it is not there (e.g. only the build exists)
+   */
+  private static Path sourceDocsDir(String sidebarConfig) {
+    Path file = Paths.get(sidebarConfig).toAbsolutePath().normalize();
+    Path dir = file.getParent();
+    Matcher versioned =
+        Pattern.compile("(version-.+)-sidebars\\.json").matcher(file.getFileName().toString());
+    Path docs =
+        versioned.matches() && dir.getParent() != null
+            ? dir.getParent().resolve("versioned_docs").resolve(versioned.group(1))
+            : dir.resolve("docs");
+    return Files.isDirectory(docs) ? docs : null;
+  }
+
+  private void processStructuredPages() throws IOException {
+    for (SidebarItem item : sidebarStructure) {
+      processSidebarItem(item, outline);
+    }
+  }
+
+  private void processSidebarItem(SidebarItem item, PDOutlineNode parent) throws IOException {
+    if (item.isCategory()) {
+      PDOutlineItem categoryItem = createOutlineItem(item.label, null, parent);
+      for (SidebarItem child : item.children) {
+        processSidebarItem(child, categoryItem);
+      }
+    } else {
+      processPage(item.label, parent);
+    }
+  }
+
+  private void processPage(String label, PDOutlineNode parent) throws IOException {
+    Path htmlPath = resolveSidebarPath(label);
+    if (!Files.exists(htmlPath)) {
+      logError("HTML file not found: " + htmlPath);
+      return;
+    }
+    PDPage page = addPageFromHtml(htmlPath, label);
+    if (page == null) return;
+    pageMap.put(label, page);
+    String title = extractPageTitle(htmlPath);
+    createOutlineItem(title, page, parent);
+  }
+
+  private Path resolveSidebarPath(String label) throws IOException {
+    Path htmlPath = resolveDocsDir().resolve(label + ".html");
+    // try alternative path if .html doesn't exist
+    if (!Files.exists(htmlPath)) {
+      Path indexPath = resolveDocsDir().resolve(label).resolve("index.html");
+      if (Files.exists(indexPath)) {
+        return indexPath;
+      }
+    }
+    return htmlPath;
+  }
+
+  /** Collects the pages to render, in sidebar order, with their placeholder titles. */
+  private Map<Path, String> collectSidebarSources() throws IOException {
+    Map<Path, String> sources = new LinkedHashMap<>();
+    Deque<SidebarItem> pending = new ArrayDeque<>(sidebarStructure);
+    while (!pending.isEmpty()) {
+      SidebarItem item = pending.pollFirst();
+      if (item.isCategory()) {
+        for (int i = item.children.size() - 1; i >= 0; i--) {
+          pending.addFirst(item.children.get(i));
+        }
+        continue;
+      }
+      Path htmlPath = resolveSidebarPath(item.label);
+      if (Files.exists(htmlPath)) {
+        sources.putIfAbsent(htmlPath, item.label);
+      }
+    }
+    return sources;
+  }
+
+  private void generatePdfFromSitemap() throws IOException {
+    PDOutlineItem rootToc = new PDOutlineItem();
+    rootToc.setTitle("Documentation Structure");
+    Map<Integer, PDOutlineItem> lastAtLevel = new HashMap<>();
+    lastAtLevel.put(0, rootToc);
+
+    for (DocumentationPage page : sitemapPages) {
+      Path htmlPath = resolveSitemapPath(page);
+      if (!Files.exists(htmlPath)) {
+        log.println("Skipping missing file: " + htmlPath);
+        continue;
+      }
+
+      PDPage pdfPage = addPageFromHtml(htmlPath, page.title);
+      if (pdfPage == null) continue;
+
+      if (!request.noToc) {
+        PDOutlineItem tocItem = new PDOutlineItem();
+        tocItem.setTitle(page.title);
+        PDPageDestination dest = new PDPageFitDestination();
+        dest.setPage(pdfPage);
+        tocItem.setDestination(dest);
+
+        int parentLevel = Math.max(0, page.depth - 1);
+        PDOutlineItem parent = lastAtLevel.get(parentLevel);
+        if (parent != null) {
+          parent.addLast(tocItem);
+        } else {
+          rootToc.addLast(tocItem);
+        }
+        lastAtLevel.put(page.depth, tocItem);
+      }
+    }
+
+    if (!request.noToc) {
+      outline.addLast(rootToc);
+    }
+  }
+
+  private Path resolveSitemapPath(DocumentationPage page) {
+    // Extract path from full URL (e.g., /docs/tutorial-basics/create-a-page)
+    URI uri = URI.create(page.url);
+    String relativePath = uri.getPath().replaceFirst("^/", "") + ".html";
+    Path htmlPath = Paths.get(request.inputDir, relativePath);
+
+    // try alternative path if .html doesn't exist
+    if (!Files.exists(htmlPath)) {
+      Path indexPath =
+          Paths.get(request.inputDir, relativePath.replace(".html", ""), "index.html");
+      if (Files.exists(indexPath)) {
+        return indexPath;
+      }
+    }
+    return htmlPath;
+  }
+
+  /** Collects the pages to render, in sitemap order, with their placeholder titles. */
+  private Map<Path, String> collectSitemapSources() {
+    Map<Path, String> sources = new LinkedHashMap<>();
+    for (DocumentationPage page : sitemapPages) {
+      Path htmlPath = resolveSitemapPath(page);
+      if (Files.exists(htmlPath)) {
+        sources.putIfAbsent(htmlPath, page.title);
+        lastModified.putIfAbsent(htmlPath, page.lastModified);
+      }
+    }
+    return sources;
+  }
+
+  private Path resolveDocsDir() throws IOException {
+    if (docsDir != null) return docsDir;
+    try (Stream<Path> stream = Files.walk(Paths.get(request.inputDir), 2)) {
+      docsDir = stream
+          .filter(
+              p -> p.toString().matches(".*/version-\\d+(\\.\\d+)*?/docs$") || p.endsWith("docs"))
+          .findFirst()
+          .orElseThrow(() -> new IOException("Docs directory not found"));
+      return docsDir;
+    }
+  }
+
+  /** Adds a rendered page to the document, or records its error and returns null. */
+  private PDPage addPageFromHtml(Path htmlPath, String title) throws IOException {
+    checkCancelled();
+    PDPage kept = keepPreviousPage(htmlPath, title);
+    if (kept != null) return kept;
+    // Pages were rendered ahead of time by the scheduler; a page listed twice renders again
+    PageRenderer.RenderResult result = prerendered.remove(htmlPath);
+    Exception failure = renderFailures.get(htmlPath);
+    if (result == null && failure == null) {
+      try {
+        result = renderer.render(htmlPath, title);
+      } catch (IOException | RuntimeException e) {
+        checkCancelled();
+        failure = e;
+      }
+    }
+    if (result == null) {
+      logError("Page failed to render: " + htmlPath + ": " + failure.getMessage());
+      pageErrors.add(new PageError(htmlPath.toString(), title, String.valueOf(failure)));
+      return null;
+    }
+    if (result.overrun != null) {
+      logError(
+          "Render budget exceeded for "
+              + htmlPath
+              + ": "
+              + result.overrun
+              + ", using "
+              + result.timing.profile
+              + " profile");
+    }
+    timings.add(result.timing);
+    pageDocuments.add(result.document);
+    int firstPage = appendPages(htmlPath, title, result.pages, result.anchorPages);
+    if (searchIndex != null) {
+      searchIndex.addSource(
+          firstPage,
+          result.pages.size(),
+          sourceKey(htmlPath),
+          result.sections,
+          result.anchorPages);
+    }
+    return result.pages.get(0);
+  }
+
+  /**
+   * Takes the pages of a source from the previous PDF if it did not change.
+   *
+   * @return The first kept page, or null if the source has to be rendered
+   */
+  private PDPage keepPreviousPage(Path htmlPath, String title) throws IOException {
+    if (patcher == null) return null;
+    Deque<PdfManifest.Entry> previous = reusable.get(sourceKey(htmlPath));
+    if (previous == null || previous.isEmpty() || !unchanged(previous.peekFirst(), htmlPath)) {
+      return null;
+    }
+    PdfManifest.Entry entry = previous.pollFirst();
+    List<PDPage> pages =
+        patcher
+            .originalPages()
+            .subList(entry.firstPage - 1, entry.firstPage - 1 + entry.pageCount);
+    reusedPages += pages.size();
+    // Manifests written before heading positions were recorded index at the first page
+    Map<String, Integer> anchorPages =
+        entry.anchorPages != null ? entry.anchorPages : new HashMap<>();
+    int firstPage = appendPages(htmlPath, title, pages, anchorPages);
+    if (searchIndex != null) {
+      List<PageSection> sections = PageRenderer.readSections(htmlPath);
+      searchIndex.addSource(
+          firstPage, pages.size(), sourceKey(htmlPath), sections, anchorPages);
+    }
+    return pages.get(0);
+  }
+
+  /** Adds the pages of one source and returns the 1-based number of the first. */
+  private int appendPages(
+      Path htmlPath, String title, List<PDPage> pages, Map<String, Integer> anchorPages)
+      throws IOException {
+    int firstPage = pageOrder.size() + 1;
+    pageOrder.addAll(pages);
+    // An update rearranges the page tree once all pages are known
+    if (patcher == null) {
+      for (PDPage page : pages) {
+        document.addPage(page);
+      }
+    }
+    PdfManifest.Entry entry =
+        new PdfManifest.Entry(
+            sourceKey(htmlPath),
+            title,
+            lastModified.get(htmlPath),
+            contentHash(htmlPath),
+            firstPage,
+            pages.size());
+    entry.anchorPages = anchorPages;
+    manifestEntries.add(entry);
+    return firstPage;
+  }
+
+  private PDOutlineItem createOutlineItem(String title, PDPage page, PDOutlineNode parent) {
+    PDOutlineItem item = new PDOutlineItem();
+    item.setTitle(title);
+    if (page != null) {
+      PDPageDestination dest = new PDPageFitDestination();
+      dest.setPage(page);
+      item.setDestination(dest);
+    }
+    if (parent != null) {
+      parent.addLast(item);
+    }
+    return item;
+  }
+
+  private String extractPageTitle(Path htmlPath) throws IOException {
+    Document doc = Jsoup.parse(htmlPath.toFile(), "UTF-8");
+    String frontmatterTitle = doc.select("meta[name=title]").attr("content");
+    return !frontmatterTitle.isEmpty() ? frontmatterTitle : doc.title().split("\\|")[0].trim();
+  }
+
+  private void logInfo(String msg) {
+    log.println("[INFO] " + msg);
+  }
+
+  private void logWarning(String msg) {
+    log.println("[WARN] " + msg);
+  }
+
+  private void logError(String msg) {
+    log.println("[ERROR] " + msg);
+  }
+}
@@ -0,0 +1,116 @@
+package tn.eternity;
+
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import tn.eternity.model.GenerationRequest;
+import tn.eternity.model.GenerationResult;
+import tn.eternity.util.RenderCache;
+
+/**
+ * Library entry point for embedding the generator in another JVM application. Requests run
+ * concurrently on a bounded pool; each gets isolated document state while font metrics,
+ * stylesheets, assets and (optionally) rendered pages are shared through one {@link
+ * RenderCache}. Nothing here calls {@code System.exit}.
+ *
+ * <pre>{@code
+ * try (GenerationService service = new GenerationService(2, 256L << 20)) {
+ *   GenerationResult result =
+ *       service.submit(GenerationRequest.builder().input("build").sitemap("s.json")
+ *           .output("docs.pdf").build()).join();
+ * }
+ * }</pre>
+ */
+public class GenerationService implements AutoCloseable {
+
+  private final ExecutorService pool;
+  private final RenderCache cache;
+  private final PrintStream log;
+
+  /**
+   * @param maxConcurrentJobs Requests generated at the same time; others wait in line
+   * @param pageCacheBytes Memory for reusing pages rendered identically by several requests
+   */
+  public GenerationService(int maxConcurrentJobs, long pageCacheBytes) {
+    this(maxConcurrentJobs, pageCacheBytes, null);
+  }
+
+  /**
+   * @param maxConcurrentJobs Requests generated at the same time; others wait in line
+   * @param pageCacheBytes Memory for reusing pages rendered identically by several requests
+   * @param log Stream for progress messages of every job, or null for none
+   */
+  public GenerationService(int maxConcurrentJobs, long pageCacheBytes, PrintStream log) {
+    this.cache = new RenderCache(pageCacheBytes);
+    this.log = log;
+    AtomicInteger ids = new AtomicInteger();
+    // Daemon threads so an embedding application can exit without closing the service
+    this.pool =
+        Executors.newFixedThreadPool(
+            Math.max(1, maxConcurrentJobs),
+            r -> {
+              Thread t = new Thread(r, "pdf-generation-" + ids.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /**
+   * Queues a request. Cancelling the returned future stops the job at the next page and
+   * interrupts any render in progress; nothing is written unless the job reached the save step.
+   *
+   * @param request What to generate
+   * @return Completes with the result, or exceptionally if the structure could not be read or
+   *     the PDF could not be written. Pages that fail to render do not fail the future; they are
+   *     listed in {@link GenerationResult#pageErrors}.
+   */
+  public CompletableFuture<GenerationResult> submit(GenerationRequest request) {
+    GenerationJob job = new GenerationJob(request, cache, log);
+    CompletableFuture<GenerationResult> result = new CompletableFuture<>();
+    Future<?> task =
+        pool.submit(
+            () -> {
+              try {
+                result.complete(job.run());
+              } catch (Throwable t) {
+                result.completeExceptionally(t);
+              }
+            });
+    result.whenComplete(
+        (r, t) -> {
+          if (result.isCancelled()) {
+            job.cancel();
+            task.cancel(true);
+          }
+        });
+    return result;
+  }
+
+  /** Caches shared by every request of this service, e.g. for hit statistics. */
+  public RenderCache cache() {
+    return cache;
+  }
+
+  /**
+   * Stops accepting requests and waits until queued and running requests complete, so that
+   * leaving a try-with-resources block never leaves a half-written PDF behind (the pool's daemon
+   * threads would not keep the JVM alive). If the waiting thread is interrupted, running jobs
+   * are interrupted too and stop at the next page.
+   */
+  @Override
+  public void close() {
+    pool.shutdown();
+    try {
+      while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+        // Large sites take a while; keep waiting
+      }
+    } catch (InterruptedException e) {
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -7,23 +7,32 @@ import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
 import java.io.*;
-import java.net.URI;
 import java.nio.file.*;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.apache.pdfbox.pdmodel.*;
-import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
-import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.*;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import picocli.CommandLine;
+import tn.eternity.model.BatchJob;
+import tn.eternity.model.CorpusSpec;
 import tn.eternity.model.DocumentationPage;
-import tn.eternity.model.SidebarItem;
-import tn.eternity.util.SidebarParser;
+import tn.eternity.model.GenerationRequest;
+import tn.eternity.model.GenerationResult;
+import tn.eternity.model.JobReport;
+import tn.eternity.model.LoadTestReport;
+import tn.eternity.model.PageTiming;
+import tn.eternity.util.CorpusGenerator;
+import tn.eternity.util.DeepValidator;
+import tn.eternity.util.LoadTestHarness;
+import tn.eternity.util.PdfLinearizer;
+import tn.eternity.util.PdfUtils;
+import tn.eternity.util.RenderCache;
+import tn.eternity.util.RenderReport;
 
 @CommandLine.Command(
     name = "pdf-generator",
@@ -31,12 +40,12 @@ import tn.eternity.util.SidebarParser;
     subcommands = {
       PdfGenerator.MetadataCmd.class,
       PdfGenerator.ValidateCmd.class,
-      PdfGenerator.SitemapCmd.class
+      PdfGenerator.SitemapCmd.class,
+      PdfGenerator.BatchCmd.class,
+      PdfGenerator.LoadTestCmd.class
     })
 public class PdfGenerator implements Runnable {
 
-  private final Map<String, PDPage> pageMap = new HashMap<>();
-
   @CommandLine.Option(
       names = {"--no-toc"},
       defaultValue = "false",
@@ -45,13 +54,11 @@ public class PdfGenerator implements Runnable {
 
   @CommandLine.Option(
       names = {"-i", "--input"},
-      required = true,
       description = "Docs directory")
   private String inputDir;
 
   @CommandLine.Option(
       names = {"-o", "--output"},
-      required = true,
       description = "Output PDF file")
   private String outputFile;
 
@@ -62,7 +69,7 @@ public class PdfGenerator implements Runnable {
 
   @CommandLine.Option(
       names = {"-s", "--sidebar"},
-      description = "Sidebar config JSON file",
+      description = "Sidebar config: sidebars.ts/js or a JSON export of it",
       required = false)
   private String sidebarConfig;
 
@@ -71,9 +78,62 @@ public class PdfGenerator implements Runnable {
       description = "Sitemap-based config JSON")
   private String sitemapJson;
 
-  private PDDocument document;
-  private PDDocumentOutline outline;
-  private List<SidebarItem> sidebarStructure;
+  @CommandLine.Option(
+      names = {"--page-timeout"},
+      defaultValue = "0",
+      description = "Per-page render time budget in seconds (0 = unlimited)")
+  private long pageTimeoutSeconds;
+
+  @CommandLine.Option(
+      names = {"--page-allocation"},
+      defaultValue = "0",
+      description = "Per-page budget of heap allocated while rendering, in MB (0 = unlimited)")
+  private long pageAllocationMb;
+
+  @CommandLine.Option(
+      names = {"--slowest"},
+      defaultValue = "10",
+      description = "Number of slowest pages to report at the end of the run (0 = none)")
+  private int slowestPages;
+
+  @CommandLine.Option(
+      names = {"-j", "--threads"},
+      description = "Number of pages rendered concurrently")
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  @CommandLine.Option(
+      names = {"--stats"},
+      description = "Render history file used for scheduling (default: <output>.stats.json)")
+  private String statsFile;
+
+  @CommandLine.Option(
+      names = {"--plan"},
+      defaultValue = "false",
+      description = "Print the predicted render schedule and build time, then exit")
+  private boolean planOnly;
+
+  @CommandLine.Option(
+      names = {"--search-index"},
+      description = "Also write a JSON inverted index (terms -> pages/sections) to this file")
+  private String searchIndexFile;
+
+  @CommandLine.Option(
+      names = {"--linearize"},
+      defaultValue = "false",
+      description = "Write a linearized (fast web view) PDF so viewers can show page one early")
+  private boolean linearize;
+
+  @CommandLine.Option(
+      names = {"--update"},
+      defaultValue = "false",
+      description =
+          "Patch the existing output PDF, re-rendering only changed, added or removed pages")
+  private boolean update;
+
+  @CommandLine.Option(
+      names = {"--manifest"},
+      description = "Source page to PDF page map for --update (default: <output>.manifest.json)")
+  private String manifestFile;
 
   public static void main(String[] args) {
     new CommandLine(new PdfGenerator()).execute(args);
@@ -147,199 +207,47 @@ public class PdfGenerator implements Runnable {
   @Override
   public void run() {
     try {
-      document = new PDDocument();
-      if (!noToc) {
-        outline = new PDDocumentOutline();
-        document.getDocumentCatalog().setDocumentOutline(outline);
+      // Not picocli-required so that subcommands can run without them
+      if (inputDir == null || (outputFile == null && !planOnly)) {
+        throw new IllegalArgumentException("Both --input and --output must be provided.");
       }
-
-      if (sitemapJson != null) {
-        logInfo("Using sitemap-based document structure...");
-        generatePdfFromSitemap(sitemapJson);
-      } else if (sidebarConfig != null) {
-        logInfo("Parsing sidebar config...");
-        parseSidebarConfig();
-        logInfo("Processing structured pages...");
-        processStructuredPages();
-      } else {
+      if (sitemapJson == null && sidebarConfig == null) {
         throw new IllegalArgumentException("Either --sidebar or --sitemap must be provided.");
       }
-
-      logInfo("Saving PDF to " + outputFile);
-      document.save(outputFile);
-      document.close();
-      logInfo("Structured PDF generated: " + outputFile);
+      GenerationRequest request =
+          GenerationRequest.builder()
+              .input(inputDir)
+              .output(outputFile)
+              .sitemap(sitemapJson)
+              .sidebar(sidebarConfig)
+              .css(cssFile)
+              .searchIndex(searchIndexFile)
+              .stats(statsFile)
+              .manifest(manifestFile)
+              .noToc(noToc)
+              .linearize(linearize)
+              .update(update)
+              .pageTimeoutSeconds(pageTimeoutSeconds)
+              .pageAllocationMb(pageAllocationMb)
+              .threads(threads)
+              .build();
+      GenerationJob job = new GenerationJob(request, new RenderCache(0), System.out);
+      if (planOnly) {
+        job.printPlan(slowestPages);
+        return;
+      }
+      GenerationResult result = job.run();
+      RenderReport.print(result.timings, slowestPages, System.out);
+      if (!result.pageErrors.isEmpty()) {
+        throw new IllegalStateException(
+            result.pageErrors.size() + " pages failed to render and were left out");
+      }
     } catch (Exception e) {
       logError("PDF generation failed: " + e.getMessage());
       System.exit(1);
     }
   }
 
-  private void parseSidebarConfig() throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    Map<String, Object> sidebarData =
-        mapper.readValue(new File(sidebarConfig), new TypeReference<Map<String, Object>>() {});
-    sidebarStructure = SidebarParser.parseSidebarItems(sidebarData.get("docsSidebar"));
-  }
-
-  private void processStructuredPages() throws IOException {
-    for (SidebarItem item : sidebarStructure) {
-      processSidebarItem(item, outline);
-    }
-  }
-
-  private void processSidebarItem(SidebarItem item, PDOutlineNode parent) throws IOException {
-    if (item.isCategory()) {
-      PDOutlineItem categoryItem = createOutlineItem(item.label, null, parent);
-      for (SidebarItem child : item.children) {
-        processSidebarItem(child, categoryItem);
-      }
-    } else {
-      processPage(item.label, parent);
-    }
-  }
-
-  private void processPage(String label, PDOutlineNode parent) throws IOException {
-    Path htmlPath = resolveDocsDir().resolve(label + ".html");
-    if (!Files.exists(htmlPath)) {
-      logError("HTML file not found: " + htmlPath);
-      return;
-    }
-    PDPage page = createPageFromHtml(htmlPath);
-    document.addPage(page);
-    pageMap.put(label, page);
-    String title = extractPageTitle(htmlPath);
-    createOutlineItem(title, page, parent);
-  }
-
-  private void generatePdfFromSitemap(String sitemapJson) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    List<DocumentationPage> pages =
-        mapper.readValue(new File(sitemapJson), new TypeReference<>() {});
-
-    PDOutlineItem rootToc = new PDOutlineItem();
-    rootToc.setTitle("Documentation Structure");
-    Map<Integer, PDOutlineItem> lastAtLevel = new HashMap<>();
-    lastAtLevel.put(0, rootToc);
-
-    for (DocumentationPage page : pages) {
-      // Extract path from full URL (e.g., /docs/tutorial-basics/create-a-page)
-      URI uri = URI.create(page.url);
-      String relativePath = uri.getPath().replaceFirst("^/", "") + ".html";
-      Path htmlPath = Paths.get(inputDir, relativePath);
-
-      // try alternative path if .html doesn't exist
-      if (!Files.exists(htmlPath)) {
-        Path indexPath = Paths.get(inputDir, relativePath.replace(".html", ""), "index.html");
-        if (Files.exists(indexPath)) {
-          htmlPath = indexPath;
-        } else {
-          System.out.println("Skipping missing file: " + htmlPath);
-          continue;
-        }
-      }
-
-      PDPage pdfPage = createPageFromHtml(htmlPath);
-      document.addPage(pdfPage);
-
-      if (!noToc) {
-        PDOutlineItem tocItem = new PDOutlineItem();
-        tocItem.setTitle(page.title);
-        PDPageDestination dest = new PDPageFitDestination();
-        dest.setPage(pdfPage);
-        tocItem.setDestination(dest);
-
-        int parentLevel = Math.max(0, page.depth - 1);
-        PDOutlineItem parent = lastAtLevel.get(parentLevel);
-        if (parent != null) {
-          parent.addLast(tocItem);
-        } else {
-          rootToc.addLast(tocItem);
-        }
-        lastAtLevel.put(page.depth, tocItem);
-      }
-    }
-
-    if (!noToc) {
-      outline.addLast(rootToc);
-    }
-  }
-
-  private Path resolveDocsDir() throws IOException {
-    try (Stream<Path> stream = Files.walk(Paths.get(inputDir), 2)) {
-      return stream
-          .filter(
-              p -> p.toString().matches(".*/version-\\d+(\\.\\d+)*?/docs$") || p.endsWith("docs"))
-          .findFirst()
-          .orElseThrow(() -> new IOException("Docs directory not found"));
-    }
-  }
-
-  private PDPage createPageFromHtml(Path htmlPath) throws IOException {
-    String htmlContent = Files.readString(htmlPath);
-    htmlContent =
-        htmlContent
-            .replace("src=\"/assets/", "src=\"assets/")
-            .replace("href=\"/assets/", "href=\"assets/");
-    // Parse and clean the HTML
-    Document doc = Jsoup.parse(htmlContent);
-    doc.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
-
-    // Remove common Docusaurus layout elements
-    doc.select("header").remove();
-    doc.select("nav").remove();
-    doc.select("aside").remove(); // sidebar
-    doc.select("footer").remove();
-    doc.select(".theme-doc-toc-desktop").remove(); // right-side TOC
-    doc.select(".theme-doc-footer").remove(); // bottom nav
-    doc.select(".theme-doc-markdown.markdown").tagName("article"); // optional: re-tag main content
-
-    // Remove unwanted Docusaurus elements from the HTML before rendering
-    doc.select("a[href='#__docusaurus_skipToContent_fallback']").remove(); // Skip to content link
-    doc.select(".theme-edit-this-page").remove(); // "Edit this page" button
-    doc.select(".pagination-nav").remove(); // Bottom prev/next navigation
-
-    // Ensure output is well-formed XHTML for PDF rendering
-    doc.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
-
-    // Inject custom print CSS if provided
-    if (cssFile != null) {
-      String css = Files.readString(Paths.get(cssFile));
-      doc.head().append("<style>" + css + "</style>");
-    }
-
-    // Prepare to render the sanitized HTML to PDF
-    ByteArrayOutputStream pdfBytes = new ByteArrayOutputStream();
-    PdfRendererBuilder builder = new PdfRendererBuilder();
-    // Set base URI for relative links and resources
-    String baseUri = htmlPath.getParent().getParent().toUri().toString();
-    System.out.println("PDF base URI: " + baseUri);
-    builder.withHtmlContent(doc.html(), baseUri); // Pass sanitized XHTML
-    builder.toStream(pdfBytes); // Output stream for PDF bytes
-    builder.run(); // Render the PDF
-
-    PDDocument tempDoc = PDDocument.load(pdfBytes.toByteArray());
-    return tempDoc.getPage(0);
-  }
-
-  private PDOutlineItem createOutlineItem(String title, PDPage page, PDOutlineNode parent) {
-    PDOutlineItem item = new PDOutlineItem();
-    item.setTitle(title);
-    if (page != null) {
-      PDPageDestination dest = new PDPageFitDestination();
-      dest.setPage(page);
-      item.setDestination(dest);
-    }
-    parent.addLast(item);
-    return item;
-  }
-
-  private String extractPageTitle(Path htmlPath) throws IOException {
-    Document doc = Jsoup.parse(htmlPath.toFile(), "UTF-8");
-    String frontmatterTitle = doc.select("meta[name=title]").attr("content");
-    return !frontmatterTitle.isEmpty() ? frontmatterTitle : doc.title().split("\\|")[0].trim();
-  }
-
   // -------------------- METADATA SUBCOMMAND --------------------
   @CommandLine.Command(name = "metadata", description = "Enhance PDF metadata and outline")
   public static class MetadataCmd implements Runnable {
@@ -364,6 +272,12 @@ public class PdfGenerator implements Runnable {
         description = "Input PDF file")
     private String inputFile;
 
+    @CommandLine.Option(
+        names = {"--linearize"},
+        defaultValue = "false",
+        description = "Write the updated PDF linearized (fast web view)")
+    private boolean linearize;
+
     @Override
     public void run() {
       try (PDDocument document = PDDocument.load(new File(inputFile))) {
@@ -372,6 +286,10 @@ public class PdfGenerator implements Runnable {
         logInfo("Styling outline TOC levels up to " + tocLevels);
         enhanceOutline(document.getDocumentCatalog().getDocumentOutline(), tocLevels);
         document.save(inputFile);
+        if (linearize) {
+          PdfLinearizer.linearize(new File(inputFile));
+          logInfo("PDF linearized for fast web view");
+        }
         logInfo("Metadata enhanced: " + inputFile);
       } catch (Exception e) {
         logError("Metadata update failed: " + e.getMessage());
@@ -399,12 +317,43 @@ public class PdfGenerator implements Runnable {
         description = "Input PDF file")
     private String inputFile;
 
+    @CommandLine.Option(
+        names = {"--deep"},
+        defaultValue = "false",
+        description = "Check every page: content, resources, fonts, destinations, images")
+    private boolean deep;
+
+    @CommandLine.Option(
+        names = {"-j", "--threads"},
+        description = "Worker threads for --deep (each parses its own copy of the PDF)")
+    private int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    @CommandLine.Option(
+        names = {"-f", "--findings"},
+        description = "Write --deep findings as JSON lines to this file instead of stdout")
+    private String findingsFile;
+
+    @CommandLine.Option(
+        names = {"--max-image-kb"},
+        defaultValue = "4096",
+        description = "Report images whose encoded size exceeds this many KB (0 = off)")
+    private long maxImageKb;
+
+    @CommandLine.Option(
+        names = {"--max-image-mpx"},
+        defaultValue = "16",
+        description = "Report images larger than this many megapixels (0 = off)")
+    private long maxImageMegapixels;
+
     @Override
     public void run() {
       try (PDDocument document = PDDocument.load(new File(inputFile))) {
         logInfo("Validating PDF structure...");
         validatePageCount(document, minPages);
         validateTocItems(document, minTocItems);
+        if (deep) {
+          validateDeep(document);
+        }
         logInfo(
             "PDF validation passed: "
                 + document.getNumberOfPages()
@@ -416,6 +365,39 @@ public class PdfGenerator implements Runnable {
         System.exit(1);
       }
     }
+
+    private void validateDeep(PDDocument document) throws IOException {
+      long start = System.nanoTime();
+      PrintStream out =
+          findingsFile != null
+              ? new PrintStream(new FileOutputStream(findingsFile), false, "UTF-8")
+              : System.out;
+      try {
+        DeepValidator validator =
+            new DeepValidator(
+                new File(inputFile),
+                threads,
+                maxImageKb << 10,
+                maxImageMegapixels * 1_000_000,
+                out);
+        int errors = validator.validate(document);
+        logInfo(
+            "Deep validation finished in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + " ms: "
+                + errors
+                + " errors, "
+                + validator.warningCount()
+                + " warnings");
+        if (errors > 0) {
+          throw new RuntimeException(errors + " deep validation errors");
+        }
+      } finally {
+        if (out != System.out) {
+          out.close();
+        }
+      }
+    }
   }
 
   // -------------------- SITEMAP SUBCOMMAND --------------------
@@ -481,4 +463,351 @@ public class PdfGenerator implements Runnable {
       public Float priority;
     }
   }
+
+  // -------------------- BATCH SUBCOMMAND --------------------
+  @CommandLine.Command(
+      name = "batch",
+      description = "Generate PDFs for several sites from a JSON manifest in one JVM")
+  public static class BatchCmd implements Runnable {
+    @CommandLine.Option(
+        names = {"-m", "--manifest"},
+        required = true,
+        description = "JSON manifest: list of {name, input, sitemap|sidebar, css, output, noToc}")
+    private String manifest;
+
+    @CommandLine.Option(
+        names = {"-w", "--workers"},
+        description = "Maximum number of sites generated concurrently")
+    private int workers = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(
+        names = {"--page-timeout"},
+        defaultValue = "0",
+        description = "Per-page render time budget in seconds (0 = unlimited)")
+    private long pageTimeoutSeconds;
+
+    @CommandLine.Option(
+        names = {"--page-allocation"},
+        defaultValue = "0",
+        description =
+            "Per-page budget of heap allocated while rendering, in MB (0 = unlimited)")
+    private long pageAllocationMb;
+
+    @CommandLine.Option(
+        names = {"--cache-mb"},
+        defaultValue = "256",
+        description = "Memory reserved for reusing pages rendered identically by several jobs")
+    private long cacheMb;
+
+    @CommandLine.Option(
+        names = {"--slowest"},
+        defaultValue = "10",
+        description = "Number of slowest pages to report across all jobs (0 = none)")
+    private int slowestPages;
+
+    @CommandLine.Option(
+        names = {"-r", "--report"},
+        description = "Write the combined timing report as JSON")
+    private String reportFile;
+
+    @Override
+    public void run() {
+      try {
+        Path manifestPath = Paths.get(manifest).toAbsolutePath();
+        List<BatchJob> jobs =
+            new ObjectMapper().readValue(manifestPath.toFile(), new TypeReference<>() {});
+        // Relative paths in the manifest are resolved against the manifest's directory
+        Path baseDir = manifestPath.getParent();
+        List<PageTiming> allTimings = new ArrayList<>();
+        List<JobReport> reports = new ArrayList<>();
+
+        logInfo("Running " + jobs.size() + " jobs with " + workers + " workers...");
+        long start = System.nanoTime();
+        try (GenerationService service =
+            new GenerationService(workers, cacheMb << 20, System.out)) {
+          List<CompletableFuture<GenerationResult>> futures = new ArrayList<>();
+          for (BatchJob job : jobs) {
+            futures.add(submitJob(service, job, baseDir));
+          }
+          for (int i = 0; i < jobs.size(); i++) {
+            reports.add(toReport(jobs.get(i), futures.get(i), allTimings));
+          }
+          long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+          for (JobReport r : reports) {
+            System.out.printf(
+                "[INFO]   %-24s %6d pages %8d ms  %s%n",
+                r.name, r.pages, r.wallMillis, r.success ? "OK" : "FAILED: " + r.error);
+          }
+          long failed = reports.stream().filter(r -> !r.success).count();
+          logInfo(
+              "Batch finished in "
+                  + wallMillis
+                  + " ms: "
+                  + (reports.size() - failed)
+                  + " succeeded, "
+                  + failed
+                  + " failed, "
+                  + service.cache().pageHits()
+                  + " pages reused from cache");
+          RenderReport.print(allTimings, slowestPages, System.out);
+          if (reportFile != null) {
+            PdfUtils.writeJson(reports, new File(reportFile));
+            logInfo("Timing report written: " + reportFile);
+          }
+          if (failed > 0) {
+            System.exit(1);
+          }
+        }
+      } catch (Exception e) {
+        logError("Batch generation failed: " + e.getMessage());
+        System.exit(1);
+      }
+    }
+
+    private CompletableFuture<GenerationResult> submitJob(
+        GenerationService service, BatchJob job, Path baseDir) {
+      try {
+        if (job.input == null || job.output == null) {
+          throw new IllegalArgumentException("Manifest job needs 'input' and 'output'");
+        }
+        GenerationRequest request =
+            GenerationRequest.builder()
+                .input(resolve(baseDir, job.input))
+                .output(resolve(baseDir, job.output))
+                .sitemap(resolve(baseDir, job.sitemap))
+                .sidebar(resolve(baseDir, job.sidebar))
+                .css(resolve(baseDir, job.css))
+                .searchIndex(resolve(baseDir, job.searchIndex))
+                .noToc(job.noToc)
+                .linearize(job.linearize)
+                .update(job.update)
+                .pageTimeoutSeconds(pageTimeoutSeconds)
+                .pageAllocationMb(pageAllocationMb)
+                // The batch worker limit is global; each job renders its pages sequentially
+                .threads(1)
+                .build();
+        return service.submit(request);
+      } catch (IllegalArgumentException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+
+    private JobReport toReport(
+        BatchJob job, CompletableFuture<GenerationResult> future, List<PageTiming> allTimings) {
+      String name = job.name != null ? job.name : String.valueOf(job.output);
+      JobReport report = new JobReport(name, job.output);
+      try {
+        GenerationResult result = future.join();
+        report.success = result.pageErrors.isEmpty();
+        if (!report.success) {
+          report.error = result.pageErrors.size() + " pages failed to render";
+        }
+        report.wallMillis = result.wallMillis;
+        report.pages = result.pages;
+        report.renderMillis = result.renderMillis;
+        allTimings.addAll(result.timings);
+      } catch (CompletionException e) {
+        report.error = e.getCause().getMessage();
+        logError("Job " + name + " failed: " + report.error);
+      }
+      return report;
+    }
+
+    private static String resolve(Path baseDir, String path) {
+      return path == null ? null : baseDir.resolve(path).toString();
+    }
+  }
+
+  // -------------------- LOADTEST SUBCOMMAND --------------------
+  @CommandLine.Command(
+      name = "loadtest",
+      description =
+          "Run sitemap, generate, metadata and validate on a synthetic site and compare the"
+              + " timings and memory with a baseline")
+  public static class LoadTestCmd implements Runnable {
+    @CommandLine.Option(
+        names = {"-d", "--work-dir"},
+        defaultValue = "loadtest-work",
+        description = "Directory for the synthetic site, the PDF and the stage logs")
+    private String workDir;
+
+    @CommandLine.Option(
+        names = {"--pages"},
+        defaultValue = "500",
+        description = "Documentation pages in total, split evenly across versions")
+    private int pages;
+
+    @CommandLine.Option(
+        names = {"--versions"},
+        defaultValue = "1",
+        description = "Number of versioned copies of the docs")
+    private int versions;
+
+    @CommandLine.Option(
+        names = {"--depth"},
+        defaultValue = "3",
+        description = "Sidebar nesting depth")
+    private int depth;
+
+    @CommandLine.Option(
+        names = {"--table-rows"},
+        defaultValue = "20",
+        description = "Rows of the table on every page")
+    private int tableRows;
+
+    @CommandLine.Option(
+        names = {"--images"},
+        defaultValue = "2",
+        description = "Images per page")
+    private int images;
+
+    @CommandLine.Option(
+        names = {"--seed"},
+        defaultValue = "42",
+        description = "Random seed, so that runs with the same options render the same site")
+    private long seed;
+
+    @CommandLine.Option(
+        names = {"-j", "--threads"},
+        description = "Pages rendered concurrently by the generate stage")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(
+        names = {"-b", "--baseline"},
+        defaultValue = "loadtest-baseline.json",
+        description = "Baseline to compare with; a missing baseline fails the run")
+    private String baselineFile;
+
+    @CommandLine.Option(
+        names = {"--update-baseline", "--record-baseline"},
+        defaultValue = "false",
+        arity = "0..1",
+        description = "Record or replace the baseline with this run's results instead of comparing")
+    private boolean updateBaseline;
+
+    @CommandLine.Option(
+        names = {"--tolerance"},
+        defaultValue = "20",
+        description = "Allowed slowdown or growth in percent before a metric is a regression")
+    private double tolerancePercent;
+
+    @CommandLine.Option(
+        names = {"-r", "--report"},
+        description = "Also write this run's results as JSON")
+    private String reportFile;
+
+    @CommandLine.Option(
+        names = {"--jvm-option"},
+        description = "JVM option for every stage, e.g. --jvm-option=-Xmx1g (repeatable)")
+    private List<String> jvmOptions = new ArrayList<>();
+
+    @Override
+    public void run() {
+      try {
+        CorpusSpec spec = new CorpusSpec();
+        spec.pages = pages;
+        spec.versions = versions;
+        spec.sidebarDepth = depth;
+        spec.tableRows = tableRows;
+        spec.imagesPerPage = images;
+        spec.seed = seed;
+
+        Path work = Paths.get(workDir).toAbsolutePath();
+        logInfo("Generating synthetic site: " + spec);
+        int generated = new CorpusGenerator(spec).generate(work);
+        logInfo(generated + " pages written to " + work);
+
+        String site = work.resolve("build").toString();
+        String structure = work.resolve("sitemap-structure.json").toString();
+        String pdf = work.resolve("loadtest.pdf").toString();
+        LoadTestHarness harness =
+            new LoadTestHarness(PdfGenerator.class.getName(), jvmOptions, work.resolve("logs"));
+
+        LoadTestReport report = new LoadTestReport();
+        report.recordedAt = Instant.now().toString();
+        report.corpus = spec;
+        String sitemap = site + "/sitemap.xml";
+        runStage(harness, report, "sitemap", "sitemap", "-i", sitemap, "-o", structure);
+        runStage(
+            harness,
+            report,
+            "generate",
+            "-i",
+            site,
+            "--sitemap",
+            structure,
+            "-c",
+            work.resolve("print.css").toString(),
+            "-o",
+            pdf,
+            "-j",
+            String.valueOf(threads),
+            "--slowest",
+            "0");
+        runStage(harness, report, "metadata", "metadata", "-i", pdf, "-t", "Load test");
+        runStage(harness, report, "validate", "validate", "-i", pdf, "-p", "1");
+
+        try (PDDocument doc = PDDocument.load(new File(pdf))) {
+          report.pdfPages = doc.getNumberOfPages();
+        }
+        report.outputBytes = Files.size(Paths.get(pdf));
+        long generateMillis = report.stage("generate").wallMillis;
+        report.pagesPerSecond = generated * 1000.0 / Math.max(1, generateMillis);
+        logInfo(
+            String.format(
+                "%d PDF pages, %d KB, %.2f source pages/second",
+                report.pdfPages, report.outputBytes >> 10, report.pagesPerSecond));
+        if (reportFile != null) {
+          PdfUtils.writeJson(report, new File(reportFile));
+          logInfo("Load test report written: " + reportFile);
+        }
+
+        File baseline = new File(baselineFile);
+        if (updateBaseline) {
+          PdfUtils.writeJson(report, baseline);
+          logInfo("Baseline recorded: " + baselineFile);
+          return;
+        }
+        if (!baseline.exists()) {
+          // Recording silently would let every run pass against its own numbers
+          logError(
+              "No baseline at " + baselineFile + "; rerun with --record-baseline to create it");
+          System.exit(1);
+        }
+        LoadTestReport previous = new ObjectMapper().readValue(baseline, LoadTestReport.class);
+        if (!spec.sameAs(previous.corpus)) {
+          logError(
+              "Baseline was recorded for a different site ("
+                  + previous.corpus
+                  + "); rerun with the same options or --update-baseline");
+          System.exit(1);
+        }
+        logInfo("Comparing with baseline recorded " + previous.recordedAt + ":");
+        int regressions = LoadTestHarness.compare(previous, report, tolerancePercent, System.out);
+        if (regressions > 0) {
+          logError(regressions + " metrics regressed by more than " + tolerancePercent + "%");
+          System.exit(1);
+        }
+        logInfo("No regressions beyond " + tolerancePercent + "%");
+      } catch (Exception e) {
+        logError("Load test failed: " + e.getMessage());
+        System.exit(1);
+      }
+    }
+
+    private static void runStage(
+        LoadTestHarness harness, LoadTestReport report, String name, String... args)
+        throws IOException {
+      logInfo("Running stage " + name + "...");
+      LoadTestReport.Stage stage = harness.runStage(name, Arrays.asList(args));
+      report.stages.add(stage);
+      logInfo(
+          String.format(
+              "Stage %s: %d ms, peak RSS %s",
+              name,
+              stage.wallMillis,
+              stage.peakRssBytes < 0 ? "n/a" : (stage.peakRssBytes >> 20) + " MB"));
+    }
+  }
 }
@@ -0,0 +1,17 @@
+package tn.eternity.model;
+
+/** Represents one site to generate in a batch manifest. */
+public class BatchJob {
+  public String name;
+  public String input;
+  public String output;
+  public String sitemap;
+  public String sidebar;
+  public String css;
+  public String searchIndex;
+  public boolean noToc;
+  public boolean linearize;
+  public boolean update;
+
+  public BatchJob() {}
+}
@@ -0,0 +1,38 @@
+package tn.eternity.model;
+
+/** Represents the size and shape of a synthetic Docusaurus site used for load testing. */
+public class CorpusSpec {
+  public int pages = 500;
+  public int versions = 1;
+  public int sidebarDepth = 3;
+  public int tableRows = 20;
+  public int imagesPerPage = 2;
+  public long seed = 42;
+
+  public CorpusSpec() {}
+
+  /** Whether two specs describe the same corpus, so their load test results are comparable. */
+  public boolean sameAs(CorpusSpec other) {
+    return other != null
+        && pages == other.pages
+        && versions == other.versions
+        && sidebarDepth == other.sidebarDepth
+        && tableRows == other.tableRows
+        && imagesPerPage == other.imagesPerPage
+        && seed == other.seed;
+  }
+
+  @Override
+  public String toString() {
+    return pages
+        + " pages, "
+        + versions
+        + " versions, sidebar depth "
+        + sidebarDepth
+        + ", "
+        + tableRows
+        + " table rows, "
+        + imagesPerPage
+        + " images per page";
+  }
+}
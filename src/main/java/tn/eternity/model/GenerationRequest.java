@@ -0,0 +1,164 @@
+package tn.eternity.model;
+
+/**
+ * Immutable description of one generation run. Build with {@link #builder()}; a request can be
+ * submitted any number of times and shared between threads.
+ */
+public final class GenerationRequest {
+  public final String inputDir;
+  public final String outputFile;
+  public final String sitemapJson;
+  public final String sidebarConfig;
+  public final String cssFile;
+  public final String searchIndexFile;
+  public final String statsFile;
+  public final String manifestFile;
+  public final boolean noToc;
+  public final boolean linearize;
+  public final boolean update;
+  public final long pageTimeoutSeconds;
+  public final long pageAllocationMb;
+  public final int threads;
+
+  private GenerationRequest(Builder builder) {
+    this.inputDir = builder.inputDir;
+    this.outputFile = builder.outputFile;
+    this.sitemapJson = builder.sitemapJson;
+    this.sidebarConfig = builder.sidebarConfig;
+    this.cssFile = builder.cssFile;
+    this.searchIndexFile = builder.searchIndexFile;
+    this.statsFile = builder.statsFile;
+    this.manifestFile = builder.manifestFile;
+    this.noToc = builder.noToc;
+    this.linearize = builder.linearize;
+    this.update = builder.update;
+    this.pageTimeoutSeconds = builder.pageTimeoutSeconds;
+    this.pageAllocationMb = builder.pageAllocationMb;
+    this.threads = builder.threads;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Collects request options; only the input directory and a sitemap or sidebar are required. */
+  public static class Builder {
+    private String inputDir;
+    private String outputFile;
+    private String sitemapJson;
+    private String sidebarConfig;
+    private String cssFile;
+    private String searchIndexFile;
+    private String statsFile;
+    private String manifestFile;
+    private boolean noToc;
+    private boolean linearize;
+    private boolean update;
+    private long pageTimeoutSeconds;
+    private long pageAllocationMb;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private Builder() {}
+
+    /** Built Docusaurus site (or its docs folder) the HTML pages are read from. */
+    public Builder input(String inputDir) {
+      this.inputDir = inputDir;
+      return this;
+    }
+
+    public Builder output(String outputFile) {
+      this.outputFile = outputFile;
+      return this;
+    }
+
+    public Builder sitemap(String sitemapJson) {
+      this.sitemapJson = sitemapJson;
+      return this;
+    }
+
+    public Builder sidebar(String sidebarConfig) {
+      this.sidebarConfig = sidebarConfig;
+      return this;
+    }
+
+    public Builder css(String cssFile) {
+      this.cssFile = cssFile;
+      return this;
+    }
+
+    public Builder searchIndex(String searchIndexFile) {
+      this.searchIndexFile = searchIndexFile;
+      return this;
+    }
+
+    /** Render history used for scheduling; defaults to {@code <output>.stats.json}. */
+    public Builder stats(String statsFile) {
+      this.statsFile = statsFile;
+      return this;
+    }
+
+    /**
+     * Page map written by every run and read by {@link #update}; defaults to {@code
+     * <output>.manifest.json}.
+     */
+    public Builder manifest(String manifestFile) {
+      this.manifestFile = manifestFile;
+      return this;
+    }
+
+    public Builder noToc(boolean noToc) {
+      this.noToc = noToc;
+      return this;
+    }
+
+    public Builder linearize(boolean linearize) {
+      this.linearize = linearize;
+      return this;
+    }
+
+    /**
+     * Patch the existing output PDF: re-render only pages whose source changed, were added or were
+     * removed since the manifest was written, and append the difference as an incremental update.
+     * Falls back to a full generation when there is no usable previous PDF or manifest.
+     */
+    public Builder update(boolean update) {
+      this.update = update;
+      return this;
+    }
+
+    public Builder pageTimeoutSeconds(long pageTimeoutSeconds) {
+      this.pageTimeoutSeconds = pageTimeoutSeconds;
+      return this;
+    }
+
+    public Builder pageAllocationMb(long pageAllocationMb) {
+      this.pageAllocationMb = pageAllocationMb;
+      return this;
+    }
+
+    /** Pages rendered concurrently within this request (default: CPU count). */
+    public Builder threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * @return The immutable request
+     * @throws IllegalArgumentException if the input or the page structure source is missing, or
+     *     if both update and linearize are set
+     */
+    public GenerationRequest build() {
+      if (inputDir == null) {
+        throw new IllegalArgumentException("An input directory must be provided.");
+      }
+      if (sitemapJson == null && sidebarConfig == null) {
+        throw new IllegalArgumentException("Either a sitemap or a sidebar must be provided.");
+      }
+      if (update && linearize) {
+        throw new IllegalArgumentException(
+            "An incremental update cannot be linearized; drop --update to rewrite the whole PDF.");
+      }
+      return new GenerationRequest(this);
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package tn.eternity.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Represents the outcome of one generation run started through the library API. */
+public class GenerationResult {
+  public String output;
+  public int pages;
+  /** Pages kept from the previous PDF by an incremental update (0 for a full generation). */
+  public int reusedPages;
+  public long wallMillis;
+  public long renderMillis;
+  public List<PageTiming> timings = new ArrayList<>();
+  public List<PageError> pageErrors = new ArrayList<>();
+
+  public GenerationResult() {}
+
+  public GenerationResult(String output) {
+    this.output = output;
+  }
+}
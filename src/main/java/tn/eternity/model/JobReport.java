@@ -0,0 +1,19 @@
+package tn.eternity.model;
+
+/** Represents the outcome and timing of one generation job. */
+public class JobReport {
+  public String name;
+  public String output;
+  public boolean success;
+  public String error;
+  public long wallMillis;
+  public long renderMillis;
+  public int pages;
+
+  public JobReport() {}
+
+  public JobReport(String name, String output) {
+    this.name = name;
+    this.output = output;
+  }
+}
@@ -0,0 +1,40 @@
+package tn.eternity.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Represents the results of one end-to-end load test run, also used as the baseline file. */
+public class LoadTestReport {
+  public String recordedAt;
+  public CorpusSpec corpus;
+  public int pdfPages;
+  public long outputBytes;
+  public double pagesPerSecond;
+  public List<Stage> stages = new ArrayList<>();
+
+  public LoadTestReport() {}
+
+  /** Returns the stage with the given name, or null. */
+  public Stage stage(String name) {
+    for (Stage stage : stages) {
+      if (stage.name.equals(name)) return stage;
+    }
+    return null;
+  }
+
+  /** Represents one step of the sitemap, generate, metadata, validate flow. */
+  public static class Stage {
+    public String name;
+    public long wallMillis;
+    /** Peak resident set size of the stage's JVM, or -1 where /proc is unavailable. */
+    public long peakRssBytes;
+
+    public Stage() {}
+
+    public Stage(String name, long wallMillis, long peakRssBytes) {
+      this.name = name;
+      this.wallMillis = wallMillis;
+      this.peakRssBytes = peakRssBytes;
+    }
+  }
+}
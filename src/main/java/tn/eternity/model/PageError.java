@@ -0,0 +1,16 @@
+package tn.eternity.model;
+
+/** Represents a page that could not be rendered; the rest of the document is still generated. */
+public class PageError {
+  public String source;
+  public String title;
+  public String message;
+
+  public PageError() {}
+
+  public PageError(String source, String title, String message) {
+    this.source = source;
+    this.title = title;
+    this.message = message;
+  }
+}
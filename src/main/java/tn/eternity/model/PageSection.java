@@ -0,0 +1,16 @@
+package tn.eternity.model;
+
+/** Represents a headed section of a documentation page, as indexed for search. */
+public class PageSection {
+  public String title;
+  public String anchor;
+  public String text;
+
+  public PageSection() {}
+
+  public PageSection(String title, String anchor, String text) {
+    this.title = title;
+    this.anchor = anchor;
+    this.text = text;
+  }
+}
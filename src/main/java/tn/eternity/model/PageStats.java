@@ -0,0 +1,16 @@
+package tn.eternity.model;
+
+/** Represents the historical render cost of a page, persisted between runs. */
+public class PageStats {
+  public long renderMillis;
+  public long htmlBytes;
+  public int runs;
+
+  public PageStats() {}
+
+  public PageStats(long renderMillis, long htmlBytes, int runs) {
+    this.renderMillis = renderMillis;
+    this.htmlBytes = htmlBytes;
+    this.runs = runs;
+  }
+}
@@ -0,0 +1,19 @@
+package tn.eternity.model;
+
+/** Represents the render cost of a single documentation page. */
+public class PageTiming {
+  public String source;
+  public long renderMillis;
+  public long allocatedBytes;
+  public String profile;
+  public long htmlBytes;
+
+  public PageTiming() {}
+
+  public PageTiming(String source, long renderMillis, long allocatedBytes, String profile) {
+    this.source = source;
+    this.renderMillis = renderMillis;
+    this.allocatedBytes = allocatedBytes;
+    this.profile = profile;
+  }
+}
@@ -0,0 +1,55 @@
+package tn.eternity.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents which source page produced which PDF pages. Written next to the PDF so that a later
+ * run can update it incrementally instead of regenerating it.
+ */
+public class PdfManifest {
+  public String generatedAt;
+  /** Hash of the settings that affect every page (print CSS, outline on/off, structure source). */
+  public String settingsHash;
+  /** Size of the PDF when it was last written in full; incremental updates only append to it. */
+  public long baseBytes;
+  public List<Entry> pages = new ArrayList<>();
+
+  public PdfManifest() {}
+
+  /** Represents one source page, in PDF order. */
+  public static class Entry {
+    /** HTML file, relative to the input directory. */
+    public String source;
+    public String title;
+    /** The sitemap's lastmod for this page, or null in sidebar mode. */
+    public String lastModified;
+    public String contentHash;
+    /** 1-based number of the first PDF page rendered from this source. */
+    public int firstPage;
+    public int pageCount;
+    /**
+     * 0-based page within this source of each heading id, from the layout, so that pages kept by
+     * an update can be indexed for search without rendering them again. Null if not recorded.
+     */
+    public Map<String, Integer> anchorPages;
+
+    public Entry() {}
+
+    public Entry(
+        String source,
+        String title,
+        String lastModified,
+        String contentHash,
+        int firstPage,
+        int pageCount) {
+      this.source = source;
+      this.title = title;
+      this.lastModified = lastModified;
+      this.contentHash = contentHash;
+      this.firstPage = firstPage;
+      this.pageCount = pageCount;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package tn.eternity.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Represents a compact inverted index over the generated PDF.
+ * {@code terms} maps each term to a flat posting list {@code [gap, count, gap, count, ...]}
+ * where gaps are delta-encoded indexes into {@code sections}.
+ */
+public class SearchIndex {
+  public int version = 1;
+  public String pdf;
+  public List<Entry> sections = new ArrayList<>();
+  public Map<String, int[]> terms = new TreeMap<>();
+
+  public SearchIndex() {}
+
+  /** A searchable section and where it lands in the PDF. */
+  public static class Entry {
+    public int page;
+    public String title;
+    public String anchor;
+    public String source;
+
+    public Entry() {}
+
+    public Entry(int page, String title, String anchor, String source) {
+      this.page = page;
+      this.title = title;
+      this.anchor = anchor;
+      this.source = source;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package tn.eternity.model;
+
+/** Represents one problem found by deep PDF validation, written as a JSON line. */
+public class ValidationFinding {
+  public String severity;
+  public String check;
+  public int page;
+  public String message;
+
+  public ValidationFinding() {}
+
+  public ValidationFinding(String severity, String check, int page, String message) {
+    this.severity = severity;
+    this.check = check;
+    this.page = page;
+    this.message = message;
+  }
+}
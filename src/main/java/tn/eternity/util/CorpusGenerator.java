@@ -0,0 +1,315 @@
+package tn.eternity.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import tn.eternity.model.CorpusSpec;
+
+/**
+ * Writes a synthetic Docusaurus site for load testing: a {@code build/} tree with versioned doc
+ * pages (headings, tables, code blocks, fingerprinted images and the usual layout chrome), a
+ * {@code sitemap.xml}, a {@code sidebars.json} with nested categories and a print stylesheet.
+ * Output is deterministic for a given {@link CorpusSpec}.
+ */
+public class CorpusGenerator {
+
+  public static final String SITE_URL = "https://loadtest.example";
+  private static final int DISTINCT_IMAGES = 16;
+  private static final String[] WORDS = {
+    "pipeline", "cluster", "request", "schema", "tenant", "token", "replica", "index", "queue",
+    "config", "deploy", "latency", "service", "gateway", "client", "session", "payload", "cache",
+    "shard", "metric", "timeout", "retry", "handler", "module", "version", "endpoint", "batch",
+    "the", "a", "is", "with", "for", "when", "each", "and", "to", "of", "in", "on", "must"
+  };
+
+  private final CorpusSpec spec;
+  private final Random random;
+
+  public CorpusGenerator(CorpusSpec spec) {
+    this.spec = spec;
+    this.random = new Random(spec.seed);
+  }
+
+  /**
+   * Writes the corpus. Layout under {@code root}: {@code build/} (the site, with
+   * {@code build/sitemap.xml}), {@code sidebars.json} and {@code print.css}.
+   *
+   * @param root Directory to write into; existing files are overwritten
+   * @return Number of documentation pages written, across all versions
+   * @throws IOException if writing fails
+   */
+  public int generate(Path root) throws IOException {
+    Path build = root.resolve("build");
+    Files.createDirectories(build);
+    List<String> images = writeImages(build.resolve("assets/images"));
+    String stylesheet = writeSiteStylesheet(build.resolve("assets/css"));
+
+    List<String> urls = new ArrayList<>();
+    urls.add(SITE_URL + "/");
+    int perVersion = Math.max(1, spec.pages / Math.max(1, spec.versions));
+    int written = 0;
+    for (int v = 0; v < Math.max(1, spec.versions); v++) {
+      // The current version lives at /docs/, older ones at /docs/<n>.0/
+      String prefix = v == 0 ? "" : (spec.versions - v) + ".0/";
+      List<String> ids = docIds(perVersion);
+      for (String id : ids) {
+        Path html = build.resolve("docs/" + prefix + id + ".html");
+        Files.createDirectories(html.getParent());
+        Files.writeString(html, page(id, prefix, stylesheet, images), StandardCharsets.UTF_8);
+        urls.add(SITE_URL + "/docs/" + prefix + id);
+        written++;
+      }
+      if (v == 0) {
+        File sidebars = root.resolve("sidebars.json").toFile();
+        PdfUtils.writeJson(Map.of("docsSidebar", sidebar(ids)), sidebars);
+      }
+    }
+    for (int i = 0; i < 5; i++) {
+      urls.add(SITE_URL + "/blog/post-" + i);
+    }
+    writeSitemap(build.resolve("sitemap.xml"), urls);
+    Files.writeString(
+        root.resolve("print.css"),
+        "@page { size: A4; margin: 18mm 16mm; }\n"
+            + "body { font-family: sans-serif; font-size: 10.5pt; }\n"
+            + "table { border-collapse: collapse; width: 100%; }\n"
+            + "td, th { border: 1px solid #999; padding: 2px 4px; }\n"
+            + "img { max-width: 100%; }\n"
+            + "pre { white-space: pre-wrap; background: #f4f4f4; }\n");
+    return written;
+  }
+
+  /** Spreads pages over a category tree {@code sidebarDepth} levels deep. */
+  private List<String> docIds(int count) {
+    int depth = Math.max(1, spec.sidebarDepth);
+    int fanout = Math.max(2, (int) Math.ceil(Math.pow(count, 1.0 / depth)));
+    List<String> ids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      StringBuilder id = new StringBuilder();
+      int rest = i;
+      int[] digits = new int[depth];
+      for (int level = depth - 1; level >= 0; level--) {
+        digits[level] = rest % fanout;
+        rest /= fanout;
+      }
+      for (int level = 0; level < depth - 1; level++) {
+        id.append(level == 0 ? "section-" : "topic-").append(digits[level] + 1).append('/');
+      }
+      id.append("page-").append(depth == 1 ? i + 1 : digits[depth - 1] + 1);
+      ids.add(id.toString());
+    }
+    return ids;
+  }
+
+  /** Builds the Docusaurus sidebar (categories with doc id strings) for the given doc ids. */
+  private static List<Object> sidebar(List<String> ids) {
+    List<Object> root = new ArrayList<>();
+    Map<String, List<Object>> categories = new LinkedHashMap<>();
+    for (String id : ids) {
+      String[] parts = id.split("/");
+      List<Object> items = root;
+      String path = "";
+      for (int i = 0; i < parts.length - 1; i++) {
+        path += parts[i] + "/";
+        List<Object> children = categories.get(path);
+        if (children == null) {
+          children = new ArrayList<>();
+          categories.put(path, children);
+          Map<String, Object> category = new LinkedHashMap<>();
+          category.put("type", "category");
+          category.put("label", humanize(parts[i]));
+          category.put("items", children);
+          items.add(category);
+        }
+        items = children;
+      }
+      items.add(id);
+    }
+    return root;
+  }
+
+  private String page(String id, String versionPrefix, String stylesheet, List<String> images) {
+    int slash = id.indexOf('/');
+    String title = humanize(id) + (slash > 0 ? " in " + humanize(id.substring(0, slash)) : "");
+    StringBuilder html = new StringBuilder(16 << 10);
+    html.append("<!DOCTYPE html><html lang=\"en\" dir=\"ltr\"><head><meta charset=\"UTF-8\">")
+        .append("<title>")
+        .append(title)
+        .append(" | Load Test Docs</title>")
+        .append("<meta name=\"docusaurus_version\" content=\"")
+        .append(versionPrefix.isEmpty() ? "current" : versionPrefix.replace("/", ""))
+        .append("\"><link rel=\"stylesheet\" href=\"")
+        .append(stylesheet)
+        .append("\"></head><body><div id=\"__docusaurus\">")
+        .append("<a href=\"#__docusaurus_skipToContent_fallback\">Skip to main content</a>")
+        .append("<nav class=\"navbar\"><a class=\"navbar__brand\" href=\"/\">Load Test Docs</a>");
+    for (int i = 0; i < 8; i++) {
+      html.append("<a class=\"navbar__item\" href=\"/docs/\">Menu ").append(i).append("</a>");
+    }
+    html.append("</nav><div class=\"main-wrapper\"><aside class=\"theme-doc-sidebar-container\">");
+    html.append("<ul class=\"menu__list\">");
+    for (int i = 0; i < 30; i++) {
+      html.append("<li><a href=\"/docs/\">Sidebar entry ").append(i).append("</a></li>");
+    }
+    html.append("</ul></aside><main><div class=\"row\"><div class=\"col\"><article>")
+        .append("<div class=\"theme-doc-markdown markdown\"><header><h1>")
+        .append(title)
+        .append("</h1></header>");
+    paragraphs(html, 2);
+
+    int sections = 3 + random.nextInt(3);
+    for (int s = 0; s < sections; s++) {
+      String heading = sentence(3);
+      String anchor = heading.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-");
+      html.append("<h2 class=\"anchor\" id=\"")
+          .append(anchor)
+          .append("\">")
+          .append(heading)
+          .append("<a class=\"hash-link\" href=\"#")
+          .append(anchor)
+          .append("\">\u200B</a></h2>");
+      paragraphs(html, 1 + random.nextInt(3));
+      if (s == 0) table(html);
+      if (s < spec.imagesPerPage) {
+        html.append("<p><img src=\"")
+            .append(images.get(random.nextInt(images.size())))
+            .append("\" alt=\"")
+            .append(sentence(2))
+            .append("\"></p>");
+      }
+      if (s == 1) {
+        html.append("<div class=\"theme-admonition alert alert--info\"><p>")
+            .append(sentence(14))
+            .append("</p></div>")
+            .append("<pre><code class=\"language-yaml\">");
+        for (int line = 0; line < 12; line++) {
+          html.append(WORDS[random.nextInt(27)]).append(": ").append(random.nextInt(1000));
+          html.append('\n');
+        }
+        html.append("</code></pre>");
+      }
+      html.append("<h3 id=\"").append(anchor).append("-details\">Details</h3>");
+      paragraphs(html, 1);
+    }
+    // Later sections beyond the heading count still get their images
+    for (int s = sections; s < spec.imagesPerPage; s++) {
+      html.append("<p><img src=\"")
+          .append(images.get(random.nextInt(images.size())))
+          .append("\" alt=\"figure\"></p>");
+    }
+    html.append("</div><div class=\"theme-doc-footer\"><a class=\"theme-edit-this-page\" ")
+        .append("href=\"#\">Edit this page</a></div>")
+        .append("<nav class=\"pagination-nav\"><a href=\"/docs/\">Previous</a></nav>")
+        .append("</article></div><div class=\"col col--3\"><div class=\"theme-doc-toc-desktop\">")
+        .append("<ul><li>On this page</li></ul></div></div></div></main></div>")
+        .append("<footer class=\"footer\">Copyright Load Test</footer></div></body></html>");
+    return html.toString();
+  }
+
+  private void table(StringBuilder html) {
+    html.append("<table><thead><tr>");
+    for (int c = 0; c < 5; c++) {
+      html.append("<th>").append(humanize(WORDS[random.nextInt(27)])).append("</th>");
+    }
+    html.append("</tr></thead><tbody>");
+    for (int r = 0; r < spec.tableRows; r++) {
+      html.append("<tr>");
+      for (int c = 0; c < 5; c++) {
+        html.append("<td>").append(c == 0 ? "<code>" + r + "</code>" : sentence(3)).append("</td>");
+      }
+      html.append("</tr>");
+    }
+    html.append("</tbody></table>");
+  }
+
+  private void paragraphs(StringBuilder html, int count) {
+    for (int p = 0; p < count; p++) {
+      html.append("<p>").append(sentence(40 + random.nextInt(60))).append("</p>");
+    }
+  }
+
+  private String sentence(int words) {
+    StringBuilder text = new StringBuilder();
+    for (int w = 0; w < words; w++) {
+      if (w > 0) text.append(' ');
+      text.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    text.setCharAt(0, Character.toUpperCase(text.charAt(0)));
+    return text.toString();
+  }
+
+  private static String humanize(String id) {
+    String name = id.substring(id.lastIndexOf('/') + 1).replace('-', ' ');
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  /** Writes fingerprinted PNGs the way Docusaurus names its assets. */
+  private List<String> writeImages(Path dir) throws IOException {
+    Files.createDirectories(dir);
+    List<String> urls = new ArrayList<>();
+    for (int i = 0; i < DISTINCT_IMAGES; i++) {
+      BufferedImage image = new BufferedImage(960, 540, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = image.createGraphics();
+      g.setColor(Color.WHITE);
+      g.fillRect(0, 0, image.getWidth(), image.getHeight());
+      for (int r = 0; r < 60; r++) {
+        g.setColor(new Color(random.nextInt(0xFFFFFF)));
+        g.fillRect(
+            random.nextInt(image.getWidth()),
+            random.nextInt(image.getHeight()),
+            20 + random.nextInt(300),
+            10 + random.nextInt(160));
+      }
+      g.dispose();
+      String name = String.format(Locale.ROOT, "diagram-%d-%08x.png", i, random.nextInt());
+      ImageIO.write(image, "png", dir.resolve(name).toFile());
+      urls.add("/assets/images/" + name);
+    }
+    return urls;
+  }
+
+  private String writeSiteStylesheet(Path dir) throws IOException {
+    Files.createDirectories(dir);
+    StringBuilder css = new StringBuilder();
+    css.append(":root { --ifm-color-primary: #2e8555; }\n");
+    for (int i = 0; i < 400; i++) {
+      css.append(".menu__list-item-").append(i).append(" { padding: ").append(i % 7);
+      css.append("px; color: #");
+      css.append(String.format(Locale.ROOT, "%06x", random.nextInt(0xFFFFFF)));
+      css.append("; }\n");
+    }
+    String name = String.format(Locale.ROOT, "styles.%08x.css", random.nextInt());
+    Files.writeString(dir.resolve(name), css);
+    return "/assets/css/" + name;
+  }
+
+  private void writeSitemap(Path file, List<String> urls) throws IOException {
+    LocalDate epoch = LocalDate.of(2024, 1, 1);
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      out.write("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+      for (String url : urls) {
+        out.write("<url><loc>");
+        out.write(url);
+        out.write("</loc><lastmod>");
+        out.write(epoch.plusDays(random.nextInt(365)).toString());
+        out.write("</lastmod><changefreq>weekly</changefreq><priority>0.5</priority></url>\n");
+      }
+      out.write("</urlset>\n");
+    }
+  }
+}
@@ -0,0 +1,427 @@
+package tn.eternity.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.action.PDAction;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionGoTo;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDNamedDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineNode;
+import org.apache.pdfbox.util.Matrix;
+import tn.eternity.model.ValidationFinding;
+
+/**
+ * Deep, parallel structural check of a generated PDF. Each worker opens its own copy of the
+ * document (PDFBox documents are not thread-safe) and pulls pages in small chunks; findings are
+ * written as JSON lines as soon as they are found. Content streams are tokenized, never
+ * rendered, and images are checked from their dictionaries without decoding.
+ */
+public class DeepValidator {
+
+  /** Pages handed to a worker at a time; small enough to balance, large enough to be cheap. */
+  private static final int CHUNK = 16;
+
+  /** Slack, in points, before text at the page edge counts as outside the page. */
+  private static final float EDGE_TOLERANCE = 1f;
+
+  /** Content stream operators that put something on the page. */
+  static final Set<String> PAINT_OPERATORS =
+      Set.of(
+          "Tj", "TJ", "'", "\"", "Do", "BI", "sh", "f", "F", "f*", "B", "B*", "b", "b*", "S",
+          "s");
+
+  private final File file;
+  private final int threads;
+  private final long maxImageBytes;
+  private final long maxImagePixels;
+  private final PrintStream out;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Set<String> reportedFonts = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger errors = new AtomicInteger();
+  private final AtomicInteger warnings = new AtomicInteger();
+
+  /**
+   * @param file The PDF to validate
+   * @param threads Number of worker threads (each holds its own parsed copy of the PDF)
+   * @param maxImageBytes Encoded image size above which an image is reported
+   * @param maxImagePixels Image pixel count above which an image is reported
+   * @param out Stream receiving one JSON finding per line
+   */
+  public DeepValidator(
+      File file, int threads, long maxImageBytes, long maxImagePixels, PrintStream out) {
+    this.file = file;
+    this.threads = Math.max(1, threads);
+    this.maxImageBytes = maxImageBytes;
+    this.maxImagePixels = maxImagePixels;
+    this.out = out;
+  }
+
+  /**
+   * Runs every check, streaming findings as they are discovered.
+   *
+   * @param document The already loaded document, used for document-level checks
+   * @return Number of error-severity findings (warnings are not counted)
+   * @throws IOException if the PDF cannot be read
+   */
+  public int validate(PDDocument document) throws IOException {
+    int pageCount = document.getNumberOfPages();
+    checkOutline(document);
+
+    AtomicInteger next = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(
+            pool.submit(
+                () -> {
+                  try (PDDocument copy = PDDocument.load(file)) {
+                    int start;
+                    while ((start = next.getAndAdd(CHUNK)) < pageCount) {
+                      for (int p = start; p < Math.min(start + CHUNK, pageCount); p++) {
+                        checkPage(copy.getPage(p), p + 1);
+                      }
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException io) throw io;
+      throw new IOException("Deep validation failed", cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while validating", e);
+    } finally {
+      pool.shutdownNow();
+    }
+    return errors.get();
+  }
+
+  public int warningCount() {
+    return warnings.get();
+  }
+
+  private void checkPage(PDPage page, int pageNo) throws IOException {
+    if (!page.hasContents()) {
+      report("error", "empty-content", pageNo, "Page has no content stream");
+      return;
+    }
+    long length = 0;
+    Iterator<PDStream> streams = page.getContentStreams();
+    while (streams.hasNext()) {
+      PDStream stream = streams.next();
+      length += stream.getCOSObject().getLength();
+    }
+    if (length == 0) {
+      report("error", "empty-content", pageNo, "Page content stream is empty");
+      return;
+    }
+
+    PDResources resources = page.getResources();
+    Set<COSName> fontsUsed = new LinkedHashSet<>();
+    Set<COSName> xobjectsUsed = new LinkedHashSet<>();
+    boolean painted = false;
+    PDRectangle box = page.getMediaBox();
+    float[] outside = null;
+
+    // Minimal text-position tracking: just enough to find the lowest baseline
+    Deque<Matrix> ctmStack = new ArrayDeque<>();
+    Matrix ctm = new Matrix();
+    Matrix textMatrix = new Matrix();
+    Matrix lineMatrix = new Matrix();
+    float leading = 0;
+
+    PDFStreamParser parser = new PDFStreamParser(page);
+    List<COSBase> operands = new ArrayList<>();
+    Object token;
+    while ((token = parser.parseNextToken()) != null) {
+      if (!(token instanceof Operator op)) {
+        if (token instanceof COSBase base) operands.add(base);
+        continue;
+      }
+      String name = op.getName();
+      if (PAINT_OPERATORS.contains(name)) painted = true;
+      switch (name) {
+        case "q" -> ctmStack.push(ctm.clone());
+        case "Q" -> ctm = ctmStack.isEmpty() ? new Matrix() : ctmStack.pop();
+        case "cm" -> {
+          Matrix m = matrix(operands);
+          if (m != null) ctm = m.multiply(ctm);
+        }
+        case "BT" -> {
+          textMatrix = new Matrix();
+          lineMatrix = new Matrix();
+        }
+        case "Tm" -> {
+          Matrix m = matrix(operands);
+          if (m != null) {
+            textMatrix = m;
+            lineMatrix = m.clone();
+          }
+        }
+        case "Td", "TD" -> {
+          if (operands.size() == 2 && operands.get(1) instanceof COSNumber ty) {
+            float tx = operands.get(0) instanceof COSNumber n ? n.floatValue() : 0;
+            if ("TD".equals(name)) leading = -ty.floatValue();
+            lineMatrix = Matrix.getTranslateInstance(tx, ty.floatValue()).multiply(lineMatrix);
+            textMatrix = lineMatrix.clone();
+          }
+        }
+        case "TL" -> {
+          if (!operands.isEmpty() && operands.get(0) instanceof COSNumber n) {
+            leading = n.floatValue();
+          }
+        }
+        case "T*", "'", "\"" -> {
+          lineMatrix = Matrix.getTranslateInstance(0, -leading).multiply(lineMatrix);
+          textMatrix = lineMatrix.clone();
+        }
+        case "Tf" -> {
+          if (!operands.isEmpty() && operands.get(0) instanceof COSName font) {
+            fontsUsed.add(font);
+          }
+        }
+        case "Do" -> {
+          if (!operands.isEmpty() && operands.get(0) instanceof COSName xobject) {
+            xobjectsUsed.add(xobject);
+          }
+        }
+        default -> {}
+      }
+      if (outside == null
+          && (name.equals("Tj") || name.equals("TJ") || name.equals("'") || name.equals("\""))) {
+        Matrix position = textMatrix.multiply(ctm);
+        float x = position.getTranslateX();
+        float y = position.getTranslateY();
+        if (x < box.getLowerLeftX() - EDGE_TOLERANCE
+            || x > box.getUpperRightX() + EDGE_TOLERANCE
+            || y < box.getLowerLeftY() - EDGE_TOLERANCE
+            || y > box.getUpperRightY() + EDGE_TOLERANCE) {
+          outside = new float[] {x, y};
+        }
+      }
+      operands.clear();
+    }
+
+    if (!painted) {
+      report("error", "blank-page", pageNo, "Page content draws nothing");
+    }
+    checkResources(resources, fontsUsed, xobjectsUsed, pageNo);
+    checkForms(resources, xobjectsUsed, pageNo, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    if (outside != null) {
+      report(
+          "error",
+          "truncated-page",
+          pageNo,
+          "Text starts outside the page at ("
+              + Math.round(outside[0])
+              + ", "
+              + Math.round(outside[1])
+              + ")pt and is cut off");
+    }
+  }
+
+  /**
+   * Checks the fonts and XObjects used by the form XObjects a content stream draws, recursing
+   * into nested forms. A form without its own resources uses those of whatever draws it.
+   */
+  private void checkForms(
+      PDResources resources, Set<COSName> xobjectsUsed, int pageNo, Set<COSBase> visited)
+      throws IOException {
+    if (resources == null) return;
+    for (COSName name : xobjectsUsed) {
+      if (!(resources.getXObject(name) instanceof PDFormXObject form)) continue;
+      if (!visited.add(form.getCOSObject())) continue;
+      PDResources formResources = form.getResources() != null ? form.getResources() : resources;
+      Set<COSName> fonts = new LinkedHashSet<>();
+      Set<COSName> xobjects = new LinkedHashSet<>();
+      PDFStreamParser parser = new PDFStreamParser(form);
+      List<COSBase> operands = new ArrayList<>();
+      Object token;
+      while ((token = parser.parseNextToken()) != null) {
+        if (!(token instanceof Operator op)) {
+          if (token instanceof COSBase base) operands.add(base);
+          continue;
+        }
+        if (!operands.isEmpty() && operands.get(0) instanceof COSName operand) {
+          if ("Tf".equals(op.getName())) fonts.add(operand);
+          if ("Do".equals(op.getName())) xobjects.add(operand);
+        }
+        operands.clear();
+      }
+      checkResources(formResources, fonts, xobjects, pageNo);
+      checkForms(formResources, xobjects, pageNo, visited);
+    }
+  }
+
+  private void checkResources(
+      PDResources resources, Set<COSName> fontsUsed, Set<COSName> xobjectsUsed, int pageNo)
+      throws IOException {
+    for (COSName name : fontsUsed) {
+      PDFont font = resources != null ? resources.getFont(name) : null;
+      if (font == null) {
+        report(
+            "error", "missing-resource", pageNo, "Font /" + name.getName() + " not in resources");
+      }
+    }
+    for (COSName name : xobjectsUsed) {
+      PDXObject xobject = resources != null ? resources.getXObject(name) : null;
+      if (xobject == null) {
+        report(
+            "error",
+            "missing-resource",
+            pageNo,
+            "XObject /" + name.getName() + " not in resources");
+      } else if (xobject instanceof PDImageXObject image) {
+        long bytes = image.getCOSObject().getLength();
+        long pixels = (long) image.getWidth() * image.getHeight();
+        if ((maxImageBytes > 0 && bytes > maxImageBytes)
+            || (maxImagePixels > 0 && pixels > maxImagePixels)) {
+          report(
+              "warning",
+              "oversized-image",
+              pageNo,
+              "Image /"
+                  + name.getName()
+                  + " is "
+                  + image.getWidth()
+                  + "x"
+                  + image.getHeight()
+                  + " px, "
+                  + (bytes >> 10)
+                  + " KB");
+        }
+      }
+    }
+    if (resources == null) return;
+    for (COSName name : resources.getFontNames()) {
+      PDFont font = resources.getFont(name);
+      if (font == null || font.isEmbedded() || font instanceof PDType3Font) continue;
+      // One finding per font, not one per page using it
+      if (reportedFonts.add(font.getName())) {
+        report(
+            font.isStandard14() ? "warning" : "error",
+            "unembedded-font",
+            pageNo,
+            "Font " + font.getName() + " is not embedded");
+      }
+    }
+  }
+
+  private void checkOutline(PDDocument document) throws IOException {
+    PDOutlineNode outline = document.getDocumentCatalog().getDocumentOutline();
+    if (outline == null) return;
+    Set<COSDictionary> pages = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (PDPage page : document.getPages()) {
+      pages.add(page.getCOSObject());
+    }
+    Deque<PDOutlineItem> pending = new ArrayDeque<>();
+    for (PDOutlineItem item : outline.children()) pending.add(item);
+    while (!pending.isEmpty()) {
+      PDOutlineItem item = pending.poll();
+      for (PDOutlineItem child : item.children()) pending.add(child);
+
+      PDDestination dest = item.getDestination();
+      PDAction action = item.getAction();
+      if (dest == null && action instanceof PDActionGoTo goTo) {
+        dest = goTo.getDestination();
+      }
+      if (dest == null) continue; // category entries have no target
+      if (dest instanceof PDNamedDestination named) {
+        dest = document.getDocumentCatalog().findNamedDestinationPage(named);
+        if (dest == null) {
+          report(
+              "error",
+              "invalid-destination",
+              0,
+              "Outline '"
+                  + item.getTitle()
+                  + "' points to unknown name "
+                  + named.getNamedDestination());
+          continue;
+        }
+      }
+      if (dest instanceof PDPageDestination pageDest) {
+        PDPage target = pageDest.getPage();
+        boolean valid =
+            target != null
+                ? pages.contains(target.getCOSObject())
+                : pageDest.getPageNumber() >= 0
+                    && pageDest.getPageNumber() < document.getNumberOfPages();
+        if (!valid) {
+          report(
+              "error",
+              "invalid-destination",
+              0,
+              "Outline '" + item.getTitle() + "' points to a page that is not in the document");
+        }
+      }
+    }
+  }
+
+  private static Matrix matrix(List<COSBase> operands) {
+    if (operands.size() != 6) return null;
+    float[] v = new float[6];
+    for (int i = 0; i < 6; i++) {
+      if (!(operands.get(i) instanceof COSNumber n)) return null;
+      v[i] = n.floatValue();
+    }
+    return new Matrix(v[0], v[1], v[2], v[3], v[4], v[5]);
+  }
+
+  private void report(String severity, String check, int page, String message) {
+    ("error".equals(severity) ? errors : warnings).incrementAndGet();
+    String line;
+    try {
+      line = mapper.writeValueAsString(new ValidationFinding(severity, check, page, message));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+    synchronized (out) {
+      out.println(line);
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package tn.eternity.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import tn.eternity.model.LoadTestReport;
+
+/**
+ * Runs pipeline stages in fresh JVMs, as {@code generate-docs.sh} does, and measures each one's
+ * wall time and peak resident set size. Compares a run against a recorded baseline.
+ */
+public class LoadTestHarness {
+
+  private static final long POLL_MILLIS = 50;
+  /** Differences below these are treated as noise (JVM startup, GC timing), not regressions. */
+  private static final long MIN_DELTA_MILLIS = 500;
+  private static final long MIN_DELTA_BYTES = 32L << 20;
+  /** Log messages for stylesheets, images and fonts that could not be loaded. */
+  private static final List<String> LOAD_FAILURES =
+      List.of("Unable to load", "Can't read image file", "Could not load @font-face");
+
+  private final String mainClass;
+  private final List<String> jvmOptions;
+  private final Path logDir;
+
+  /**
+   * @param mainClass CLI entry point run in each stage's JVM
+   * @param jvmOptions Extra JVM options for every stage (e.g. -Xmx2g)
+   * @param logDir Directory receiving one {@code <stage>.log} per stage
+   */
+  public LoadTestHarness(String mainClass, List<String> jvmOptions, Path logDir) {
+    this.mainClass = mainClass;
+    this.jvmOptions = jvmOptions;
+    this.logDir = logDir;
+  }
+
+  /**
+   * Runs one CLI invocation in a new JVM on this JVM's class path.
+   *
+   * @param name Stage name, used for the log file
+   * @param args CLI arguments
+   * @return Wall time and peak RSS of the stage
+   * @throws IOException if the stage cannot be started, exits with a non-zero status or fails to
+   *     load a stylesheet, image or font
+   */
+  public LoadTestReport.Stage runStage(String name, List<String> args) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(
+        ProcessHandle.current()
+            .info()
+            .command()
+            .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+    command.addAll(jvmOptions);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    Files.createDirectories(logDir);
+    File log = logDir.resolve(name + ".log").toFile();
+    Path rssFile = logDir.resolve(name + ".rss");
+    Files.deleteIfExists(rssFile);
+    command.add(StageMain.class.getName());
+    command.add(rssFile.toString());
+    command.add(mainClass);
+    command.addAll(args);
+
+    long start = System.nanoTime();
+    Process process =
+        new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(log)
+            .start();
+    // VmHWM only grows; the stage writes its final value at exit, samples cover a killed stage
+    Path status = Paths.get("/proc", String.valueOf(process.pid()), "status");
+    long peakRss = -1;
+    try {
+      while (!process.waitFor(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+        peakRss = Math.max(peakRss, readHighWaterMark(status));
+      }
+    } catch (InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while running stage " + name, e);
+    }
+    long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    if (Files.exists(rssFile)) {
+      peakRss = Math.max(peakRss, Long.parseLong(Files.readString(rssFile).trim()));
+    }
+    if (process.exitValue() != 0) {
+      throw new IOException(
+          "Stage " + name + " exited with status " + process.exitValue() + ", see " + log);
+    }
+    long loadFailures;
+    try (var lines = Files.lines(log.toPath())) {
+      loadFailures = lines.filter(line -> LOAD_FAILURES.stream().anyMatch(line::contains)).count();
+    }
+    if (loadFailures > 0) {
+      throw new IOException(
+          "Stage " + name + " logged " + loadFailures + " resource load failures, see " + log);
+    }
+    return new LoadTestReport.Stage(name, wallMillis, peakRss);
+  }
+
+  /**
+   * Entry point of a stage JVM: runs the CLI and writes the JVM's own VmHWM to a file at exit,
+   * which the parent can no longer read once the process is gone.
+   */
+  public static final class StageMain {
+
+    private StageMain() {}
+
+    /**
+     * @param args File to write the peak RSS to, the main class to run, then its arguments
+     */
+    public static void main(String[] args) throws Throwable {
+      Path rssFile = Paths.get(args[0]);
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    long peak = readHighWaterMark(Paths.get("/proc/self/status"));
+                    try {
+                      if (peak > 0) Files.writeString(rssFile, Long.toString(peak));
+                    } catch (IOException e) {
+                      // The parent falls back to its own samples
+                    }
+                  }));
+      try {
+        Class.forName(args[1])
+            .getMethod("main", String[].class)
+            .invoke(null, (Object) Arrays.copyOfRange(args, 2, args.length));
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  private static long readHighWaterMark(Path status) {
+    try {
+      for (String line : Files.readAllLines(status)) {
+        if (line.startsWith("VmHWM:")) {
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) << 10;
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      // Process already gone, or no /proc on this platform
+    }
+    return -1;
+  }
+
+  /**
+   * Prints a side-by-side comparison and counts regressions beyond the tolerance.
+   *
+   * @param baseline Previously recorded report
+   * @param current This run's report
+   * @param tolerancePercent Allowed slowdown/growth before a metric counts as a regression
+   * @param out Stream to print the comparison to
+   * @return Number of regressed metrics
+   */
+  public static int compare(
+      LoadTestReport baseline, LoadTestReport current, double tolerancePercent, PrintStream out) {
+    double factor = 1 + tolerancePercent / 100;
+    int regressions = 0;
+    out.printf("[INFO]   %-28s %14s %14s %8s%n", "metric", "baseline", "current", "change");
+    for (LoadTestReport.Stage stage : current.stages) {
+      LoadTestReport.Stage before = baseline.stage(stage.name);
+      if (before == null) continue;
+      String wall = stage.name + " wall ms";
+      regressions += row(out, wall, before.wallMillis, stage.wallMillis, factor, MIN_DELTA_MILLIS);
+      if (before.peakRssBytes > 0 && stage.peakRssBytes > 0) {
+        String rss = stage.name + " peak RSS MB";
+        long beforeMb = before.peakRssBytes >> 20;
+        long nowMb = stage.peakRssBytes >> 20;
+        regressions += row(out, rss, beforeMb, nowMb, factor, MIN_DELTA_BYTES >> 20);
+      }
+    }
+    long beforeKb = baseline.outputBytes >> 10;
+    regressions += row(out, "output KB", beforeKb, current.outputBytes >> 10, factor, 0);
+    // Throughput regresses when it drops, so compare the inverse
+    boolean slower =
+        current.pagesPerSecond * factor < baseline.pagesPerSecond
+            && current.pagesPerSecond < baseline.pagesPerSecond;
+    out.printf(
+        "[INFO]   %-28s %14.2f %14.2f %+7.1f%%%s%n",
+        "pages/second",
+        baseline.pagesPerSecond,
+        current.pagesPerSecond,
+        percentChange(baseline.pagesPerSecond, current.pagesPerSecond),
+        slower ? "  REGRESSION" : "");
+    return regressions + (slower ? 1 : 0);
+  }
+
+  private static int row(
+      PrintStream out, String metric, long before, long now, double factor, long minDelta) {
+    boolean regressed = now > before * factor && now - before > minDelta;
+    out.printf(
+        "[INFO]   %-28s %14d %14d %+7.1f%%%s%n",
+        metric, before, now, percentChange(before, now), regressed ? "  REGRESSION" : "");
+    return regressed ? 1 : 0;
+  }
+
+  private static double percentChange(double before, double now) {
+    return before == 0 ? 0 : (now - before) * 100 / before;
+  }
+}
@@ -0,0 +1,162 @@
+package tn.eternity.util;
+
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.FSStreamFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Input layer that memory-maps HTML, CSS and asset files instead of copying them into heap
+ * strings, and serves file: URLs to openhtmltopdf from those mappings. Fingerprinted Docusaurus
+ * assets (anything under a site root's assets/ directory) never change within a build, so their
+ * mappings are kept in a read-through cache shared by every page, and every job in a batch run.
+ */
+public class MappedInput {
+
+  /** Below this size a plain read is cheaper than setting up a mapping. */
+  static final int MAP_THRESHOLD = 64 * 1024;
+
+  private final ConcurrentHashMap<Path, ByteBuffer> assets = new ConcurrentHashMap<>();
+  private final Set<Path> assetDirs = ConcurrentHashMap.newKeySet();
+  private final AtomicLong cachedBytes = new AtomicLong();
+  private final long maxCachedBytes;
+
+  /**
+   * @param maxCachedBytes Upper bound for the asset cache (mapped memory, not heap)
+   */
+  public MappedInput(long maxCachedBytes) {
+    this.maxCachedBytes = maxCachedBytes;
+  }
+
+  /**
+   * Registers a built site whose {@code assets/} directory holds fingerprinted files.
+   *
+   * @param siteRoot Absolute, normalized site root directory
+   */
+  public void addSiteRoot(Path siteRoot) {
+    assetDirs.add(siteRoot.resolve("assets"));
+  }
+
+  /**
+   * Maps a file read-only; small files are read into a heap buffer instead.
+   *
+   * @param file The file to open
+   * @return A read-only buffer positioned at the start of the file contents
+   * @throws IOException if the file cannot be opened
+   */
+  public static ByteBuffer map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < MAP_THRESHOLD) {
+        return ByteBuffer.wrap(Files.readAllBytes(file)).asReadOnlyBuffer();
+      }
+      // The mapping stays valid after the channel is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+  }
+
+  /**
+   * Returns an InputStream over a buffer without copying it. Each call gets an independent
+   * position, so one buffer can be streamed by several readers.
+   *
+   * @param buffer The buffer returned by {@link #map(Path)}
+   * @return A stream reading the buffer from its current position
+   */
+  public static InputStream stream(ByteBuffer buffer) {
+    ByteBuffer view = buffer.duplicate();
+    return new InputStream() {
+      @Override
+      public int read() {
+        return view.hasRemaining() ? view.get() & 0xFF : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if (len == 0) return 0;
+        if (!view.hasRemaining()) return -1;
+        int n = Math.min(len, view.remaining());
+        view.get(b, off, n);
+        return n;
+      }
+
+      @Override
+      public long skip(long n) {
+        int skipped = (int) Math.min(Math.max(n, 0), view.remaining());
+        view.position(view.position() + skipped);
+        return skipped;
+      }
+
+      @Override
+      public int available() {
+        return view.remaining();
+      }
+    };
+  }
+
+  /**
+   * Returns a stream factory resolving file: URLs for openhtmltopdf, serving assets from the
+   * cache. The cache is shared, but each caller (normally one job) gets its own factory so that
+   * unreadable files are reported to that caller only.
+   *
+   * @param errors Receives a message for each URL that cannot be read, once per URL
+   * @return Factory to register with {@code useProtocolsStreamImplementation}
+   */
+  public FSStreamFactory streams(Consumer<String> errors) {
+    // openhtmltopdf asks for an image once per layout pass
+    Set<String> reported = ConcurrentHashMap.newKeySet();
+    return url -> {
+      ByteBuffer buffer = null;
+      try {
+        buffer = load(Paths.get(URI.create(url)));
+      } catch (IOException | IllegalArgumentException e) {
+        // Not fatal: openhtmltopdf renders the page without it, but silently for images
+        if (reported.add(url)) errors.accept("Unable to load " + url + ": " + e);
+      }
+      return fsStream(buffer);
+    };
+  }
+
+  /** Wraps a buffer for openhtmltopdf; a null buffer stands for an unreadable file. */
+  private static FSStream fsStream(ByteBuffer data) {
+    return new FSStream() {
+      @Override
+      public InputStream getStream() {
+        return data != null ? stream(data) : null;
+      }
+
+      @Override
+      public Reader getReader() {
+        return data != null ? new InputStreamReader(stream(data), StandardCharsets.UTF_8) : null;
+      }
+    };
+  }
+
+  private ByteBuffer load(Path file) throws IOException {
+    Path key = file.toAbsolutePath().normalize();
+    boolean asset = assetDirs.stream().anyMatch(key::startsWith);
+    if (!asset) return map(key);
+
+    ByteBuffer cached = assets.get(key);
+    if (cached != null) return cached;
+    ByteBuffer buffer = map(key);
+    if (cachedBytes.get() + buffer.capacity() <= maxCachedBytes
+        && assets.putIfAbsent(key, buffer) == null) {
+      cachedBytes.addAndGet(buffer.capacity());
+    }
+    return buffer;
+  }
+}
@@ -0,0 +1,570 @@
+package tn.eternity.util;
+
+import com.openhtmltopdf.extend.FSStreamFactory;
+import com.openhtmltopdf.pdfboxout.PagePosition;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.openhtmltopdf.render.Box;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import tn.eternity.model.PageSection;
+import tn.eternity.model.PageTiming;
+
+/**
+ * Renders Docusaurus HTML pages to PDF pages under an optional per-page time and allocation
+ * budget. A page that exceeds its budget is retried with a simplified profile (no images, no
+ * stylesheets) and, if that also fails, replaced by a placeholder page so one pathological page
+ * cannot stall the whole build. {@link #render} may be called from several threads at once.
+ *
+ * <p>openhtmltopdf ignores interruption, so a render over budget is abandoned rather than
+ * stopped: it finishes in the background and its late result is closed there. Budgeted renders
+ * run on a bounded pool, so abandoned renders cannot pile up without limit.
+ */
+public class PageRenderer implements AutoCloseable {
+
+  /** Rendering profiles, from full fidelity down to a bare placeholder. */
+  public enum Profile {
+    FULL,
+    SIMPLIFIED,
+    PLACEHOLDER
+  }
+
+  private static final long POLL_MILLIS = 50;
+
+  /** Budgeted renders running at once, abandoned ones included; more wait in the queue. */
+  private static final int MAX_RENDER_THREADS =
+      Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+  private final String cssFile;
+  private final long timeoutMillis;
+  private final long allocationBudgetBytes;
+  private final RenderCache cache;
+  private final ExecutorService executor;
+  private volatile boolean extractSections;
+  private volatile String siteRootUri;
+  private volatile FSStreamFactory streams;
+
+  /**
+   * @param cssFile Optional print CSS injected into every full-profile page
+   * @param timeoutMillis Wall-clock budget per render attempt, or 0 for no limit
+   * @param allocationBudgetBytes Bytes a render attempt may allocate on the heap (garbage
+   *     included, this is not retained memory), or 0 for no limit
+   */
+  public PageRenderer(String cssFile, long timeoutMillis, long allocationBudgetBytes) {
+    this(cssFile, timeoutMillis, allocationBudgetBytes, new RenderCache(0));
+  }
+
+  /**
+   * @param cssFile Optional print CSS injected into every full-profile page
+   * @param timeoutMillis Wall-clock budget per render attempt, or 0 for no limit
+   * @param allocationBudgetBytes Bytes a render attempt may allocate on the heap (garbage
+   *     included, this is not retained memory), or 0 for no limit
+   * @param cache Caches shared with other renderers in this JVM
+   */
+  public PageRenderer(
+      String cssFile, long timeoutMillis, long allocationBudgetBytes, RenderCache cache) {
+    this.cssFile = cssFile;
+    this.timeoutMillis = timeoutMillis;
+    this.allocationBudgetBytes = allocationBudgetBytes;
+    this.cache = cache;
+    this.streams = cache.input().streams(message -> {});
+    // Daemon threads: a render that ignores interruption must not keep the JVM alive
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            MAX_RENDER_THREADS,
+            MAX_RENDER_THREADS,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+              Thread t = new Thread(r, "page-render");
+              t.setDaemon(true);
+              return t;
+            });
+    pool.allowCoreThreadTimeOut(true);
+    this.executor = pool;
+  }
+
+  /**
+   * Enables extracting searchable text sections from each page's DOM while rendering.
+   *
+   * @param extractSections Whether {@link RenderResult#sections} should be filled
+   */
+  public void setExtractSections(boolean extractSections) {
+    this.extractSections = extractSections;
+  }
+
+  /**
+   * Sets where unreadable stylesheets, images and fonts are reported. They are not fatal: the
+   * page renders without them. By default they are ignored.
+   *
+   * @param errors Receives one message per unreadable URL
+   */
+  public void setErrorLog(Consumer<String> errors) {
+    this.streams = cache.input().streams(errors);
+  }
+
+  /**
+   * Sets the directory root-relative links ({@code /assets/...}) resolve against, normally the
+   * input directory. Files under its {@code assets/} directory are cached as fingerprinted.
+   *
+   * @param siteRoot The built site's root directory
+   */
+  public void setSiteRoot(Path siteRoot) {
+    Path root = siteRoot.toAbsolutePath().normalize();
+    cache.input().addSiteRoot(root);
+    String uri = root.toUri().toString();
+    this.siteRootUri = uri.endsWith("/") ? uri : uri + "/";
+  }
+
+  /**
+   * Renders a page, falling back to cheaper profiles when the budget is exceeded.
+   *
+   * @param htmlPath The Docusaurus HTML file
+   * @param title Title used on the placeholder page if every render attempt is over budget
+   * @return The rendered page together with its timing
+   * @throws IOException if the HTML cannot be read or rendering fails outright
+   */
+  public RenderResult render(Path htmlPath, String title) throws IOException {
+    long start = System.nanoTime();
+    long allocated = 0;
+    String overrun = null;
+
+    // Map the source once; every attempt parses from the same buffer
+    ByteBuffer html = MappedInput.map(htmlPath);
+    Profile profile = Profile.FULL;
+    Attempt attempt = renderWithinBudget(html, htmlPath, profile);
+    allocated += attempt.allocatedBytes;
+    if (attempt.document == null) {
+      overrun = attempt.overrun;
+      profile = Profile.SIMPLIFIED;
+      attempt = renderWithinBudget(html, htmlPath, profile);
+      allocated += attempt.allocatedBytes;
+    }
+    PDDocument document = attempt.document;
+    if (document == null) {
+      profile = Profile.PLACEHOLDER;
+      document = createPlaceholderPage(title);
+    } else {
+      removeTrailingBlankPages(document);
+    }
+    List<PageSection> sections = attempt.document != null ? attempt.sections : new ArrayList<>();
+    Map<String, Integer> anchorPages =
+        attempt.document != null ? attempt.anchorPages : new HashMap<>();
+
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    PageTiming timing =
+        new PageTiming(htmlPath.toString(), elapsedMillis, allocated, profile.name());
+    timing.htmlBytes = html.capacity();
+    return new RenderResult(document, timing, overrun, sections, anchorPages);
+  }
+
+  /**
+   * Extracts the search index sections of a page without rendering it, e.g. for a page kept from
+   * a previous PDF by an incremental update.
+   *
+   * @param htmlPath HTML file
+   * @return The page's sections, as {@link RenderResult#sections} would list them
+   * @throws IOException if the HTML cannot be read
+   */
+  public static List<PageSection> readSections(Path htmlPath) throws IOException {
+    Document doc = Jsoup.parse(MappedInput.stream(MappedInput.map(htmlPath)), "UTF-8", "");
+    cleanDocument(doc);
+    return SearchIndexBuilder.extractSections(doc);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private Attempt renderWithinBudget(ByteBuffer html, Path htmlPath, Profile profile)
+      throws IOException {
+    List<PageSection> sections = new ArrayList<>();
+    Map<String, Integer> anchorPages = new HashMap<>();
+    if (timeoutMillis <= 0 && allocationBudgetBytes <= 0) {
+      long before = allocatedBytes(Thread.currentThread().getId());
+      PDDocument document = renderHtml(html, htmlPath, profile, sections, anchorPages);
+      return new Attempt(
+          document,
+          null,
+          allocatedBytes(Thread.currentThread().getId()) - before,
+          sections,
+          anchorPages);
+    }
+
+    AtomicLong threadId = new AtomicLong(-1);
+    AtomicLong baseline = new AtomicLong();
+    AtomicLong started = new AtomicLong();
+    // Whoever flips this first owns the document: the caller taking it, or the worker closing it
+    AtomicBoolean claimed = new AtomicBoolean();
+    Future<PDDocument> future =
+        executor.submit(
+            () -> {
+              long tid = Thread.currentThread().getId();
+              baseline.set(allocatedBytes(tid));
+              threadId.set(tid);
+              started.set(System.nanoTime());
+              PDDocument document = renderHtml(html, htmlPath, profile, sections, anchorPages);
+              if (claimed.compareAndSet(false, true)) return document;
+              // The caller gave up on this render; nobody else will close the late result
+              document.close();
+              return null;
+            });
+
+    while (true) {
+      try {
+        PDDocument document = future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        return new Attempt(
+            document,
+            null,
+            allocatedSince(threadId.get(), baseline.get()),
+            sections,
+            anchorPages);
+      } catch (TimeoutException e) {
+        // Time spent waiting for a free render thread is not charged to the page
+        long startedAt = started.get();
+        long elapsedMillis =
+            startedAt == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        long allocated = allocatedSince(threadId.get(), baseline.get());
+        String overrun = null;
+        if (timeoutMillis > 0 && elapsedMillis > timeoutMillis) {
+          overrun = "time budget of " + timeoutMillis + " ms exceeded";
+        } else if (allocationBudgetBytes > 0 && allocated > allocationBudgetBytes) {
+          overrun = "allocation budget of " + (allocationBudgetBytes >> 20) + " MB exceeded";
+        }
+        // Losing the claim means the render finished just now; the next get() returns it
+        if (overrun != null && claimed.compareAndSet(false, true)) {
+          future.cancel(true);
+          return new Attempt(
+              null, overrun + " (" + profile + ")", allocated, sections, anchorPages);
+        }
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException io) throw io;
+        if (cause instanceof RuntimeException re) throw re;
+        throw new IOException("Rendering failed for " + htmlPath, cause);
+      } catch (InterruptedException e) {
+        if (claimed.compareAndSet(false, true)) {
+          future.cancel(true);
+        } else {
+          closeQuietly(future);
+        }
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while rendering " + htmlPath, e);
+      }
+    }
+  }
+
+  private PDDocument renderHtml(
+      ByteBuffer html,
+      Path htmlPath,
+      Profile profile,
+      List<PageSection> sections,
+      Map<String, Integer> anchorPages)
+      throws IOException {
+    // Parse straight from the mapped file, no intermediate String copies
+    Document doc = Jsoup.parse(MappedInput.stream(html), "UTF-8", "");
+    rebaseRootLinks(doc);
+    // Clean the HTML
+    cleanDocument(doc);
+    if (extractSections) {
+      sections.addAll(SearchIndexBuilder.extractSections(doc));
+    }
+
+    if (profile == Profile.SIMPLIFIED) {
+      // Drop everything expensive to lay out or decode; keep the text
+      doc.select("img, svg, picture, video, iframe, object, embed").remove();
+      doc.select("link[rel=stylesheet], style").remove();
+      doc.select("[style]").removeAttr("style");
+    } else if (cssFile != null) {
+      // Inject custom print CSS if provided
+      String css = cache.stylesheet(Paths.get(cssFile));
+      doc.head().append("<style>" + css + "</style>");
+    }
+
+    // Relative links resolve against the page's own directory, as in a browser
+    String baseUri = htmlPath.toAbsolutePath().getParent().toUri().toString();
+    // Only serialize the DOM when it is needed as a page cache key
+    String key = cache.reusesPages() ? pageKey(doc, baseUri) : null;
+    RenderCache.RenderedPage page = cache.renderedPage(key, () -> renderPdf(doc, baseUri));
+    anchorPages.putAll(page.anchorPages);
+    return PDDocument.load(page.pdf);
+  }
+
+  private RenderCache.RenderedPage renderPdf(Document doc, String baseUri) throws IOException {
+    // Heading ids are read from the DOM up front; W3CDom copies it for the renderer
+    List<String> headingIds = doc.select("h1[id], h2[id], h3[id], h4[id]").eachAttr("id");
+    ByteArrayOutputStream pdfBytes = new ByteArrayOutputStream();
+    PdfRendererBuilder builder = new PdfRendererBuilder();
+    // Hand over the DOM directly instead of re-serializing and re-parsing XHTML
+    builder.withW3cDocument(new W3CDom().fromJsoup(doc), baseUri);
+    builder.useProtocolsStreamImplementation(streams, "file");
+    builder.useCacheStore(
+        PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, cache.fontMetricsStore());
+    Map<String, Integer> anchorPages = new HashMap<>();
+    try (PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
+      renderer.layout();
+      // Page positions are only known once pages are written, so save the document ourselves
+      renderer.createPDFWithoutClosing();
+      try (PDDocument pdf = renderer.getPdfDocument()) {
+        if (!headingIds.isEmpty()) {
+          Pattern ids =
+              Pattern.compile(
+                  headingIds.stream().map(Pattern::quote).collect(Collectors.joining("|")));
+          for (PagePosition<Box> position : renderer.findPagePositionsByID(ids)) {
+            anchorPages.merge(position.getId(), position.getPageNo(), Math::min);
+          }
+        }
+        pdf.save(pdfBytes);
+      }
+    }
+    return new RenderCache.RenderedPage(pdfBytes.toByteArray(), anchorPages);
+  }
+
+  /**
+   * Builds the page cache key from what the rendered bytes depend on rather than where the page
+   * lives: the XHTML with the site root made relative again, followed by the content hash of
+   * every stylesheet, image or script it links. Hyperlinks in a reused page keep the file URIs
+   * of the site that rendered it first.
+   */
+  private String pageKey(Document doc, String baseUri) throws IOException {
+    String root = siteRootUri;
+    String xhtml = doc.html();
+    StringBuilder key = new StringBuilder(root != null ? xhtml.replace(root, "/") : xhtml);
+    URI base = URI.create(baseUri);
+    for (Element el : doc.select("[src], link[href]")) {
+      String link = el.hasAttr("src") ? el.attr("src") : el.attr("href");
+      URI resolved;
+      try {
+        resolved = base.resolve(link);
+      } catch (IllegalArgumentException e) {
+        continue; // Not a URI openhtmltopdf could load either
+      }
+      if (!"file".equals(resolved.getScheme())) continue;
+      Path file = Paths.get(resolved.getPath());
+      String hash = Files.isRegularFile(file) ? cache.resourceHash(file) : "missing";
+      key.append('\n').append(hash);
+    }
+    return key.toString();
+  }
+
+  /** Points root-relative resource links at the site root, whatever the page's depth. */
+  private void rebaseRootLinks(Document doc) {
+    String root = siteRootUri;
+    if (root == null) return;
+    for (Element el : doc.select("[src^=/]")) {
+      rebase(el, "src", root);
+    }
+    for (Element el : doc.select("link[href^=/]")) {
+      rebase(el, "href", root);
+    }
+  }
+
+  private static void rebase(Element el, String attribute, String root) {
+    String link = el.attr(attribute);
+    // Protocol-relative links ("//cdn...") are not site paths
+    if (!link.startsWith("//")) {
+      el.attr(attribute, root + link.substring(1));
+    }
+  }
+
+  /**
+   * Removes Docusaurus layout chrome (navigation, sidebars, footers) from a parsed page.
+   *
+   * @param doc The parsed Docusaurus page, modified in place
+   */
+  static void cleanDocument(Document doc) {
+    // Remove common Docusaurus layout elements
+    doc.select("header").remove();
+    doc.select("nav").remove();
+    doc.select("aside").remove(); // sidebar
+    doc.select("footer").remove();
+    doc.select(".theme-doc-toc-desktop").remove(); // right-side TOC
+    doc.select(".theme-doc-footer").remove(); // bottom nav
+    doc.select(".theme-doc-markdown.markdown").tagName("article"); // optional: re-tag main content
+
+    // Remove unwanted Docusaurus elements from the HTML before rendering
+    doc.select("a[href='#__docusaurus_skipToContent_fallback']").remove(); // Skip to content link
+    doc.select(".theme-edit-this-page").remove(); // "Edit this page" button
+    doc.select(".pagination-nav").remove(); // Bottom prev/next navigation
+
+    // Ensure output is well-formed XHTML for PDF rendering
+    doc.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
+  }
+
+  /** Content ending right at a page break leaves an empty sheet after it. */
+  private static void removeTrailingBlankPages(PDDocument document) throws IOException {
+    int last = document.getNumberOfPages() - 1;
+    while (last > 0 && isBlank(document.getPage(last))) {
+      document.removePage(last--);
+    }
+  }
+
+  private static boolean isBlank(PDPage page) throws IOException {
+    if (!page.hasContents()) return true;
+    PDFStreamParser parser = new PDFStreamParser(page);
+    Object token;
+    while ((token = parser.parseNextToken()) != null) {
+      if (token instanceof Operator op && DeepValidator.PAINT_OPERATORS.contains(op.getName())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private PDDocument createPlaceholderPage(String title) throws IOException {
+    PDDocument tempDoc = new PDDocument();
+    PDPage page = new PDPage(PDRectangle.A4);
+    tempDoc.addPage(page);
+    try (PDPageContentStream content = new PDPageContentStream(tempDoc, page)) {
+      content.beginText();
+      content.setFont(PDType1Font.HELVETICA_BOLD, 18);
+      content.newLineAtOffset(72, PDRectangle.A4.getHeight() - 96);
+      content.showText(
+          encodable(PDType1Font.HELVETICA_BOLD, title != null ? title : "Untitled page"));
+      content.setFont(PDType1Font.HELVETICA, 11);
+      content.newLineAtOffset(0, -28);
+      content.showText("This page exceeded its render budget and was omitted from the PDF.");
+      content.endText();
+    }
+    return tempDoc;
+  }
+
+  /**
+   * Replaces what a standard-14 font cannot encode (anything outside WinAnsi, e.g. CJK or
+   * Cyrillic) with '?', since showText would throw and the placeholder is the last fallback.
+   */
+  static String encodable(PDFont font, String text) {
+    StringBuilder out = new StringBuilder(text.length());
+    text.codePoints()
+        .forEach(
+            cp -> {
+              String ch = new String(Character.toChars(Character.isISOControl(cp) ? ' ' : cp));
+              try {
+                font.encode(ch);
+                out.append(ch);
+              } catch (IllegalArgumentException | IOException e) {
+                out.append('?');
+              }
+            });
+    return out.toString();
+  }
+
+  /** Closes the document of a render that completed after its caller stopped waiting. */
+  private static void closeQuietly(Future<PDDocument> future) {
+    try {
+      PDDocument document = future.get();
+      if (document != null) document.close();
+    } catch (InterruptedException | ExecutionException | IOException e) {
+      // Nothing left to clean up
+    }
+  }
+
+  private static long allocatedSince(long threadId, long baseline) {
+    if (threadId < 0) return 0;
+    long now = allocatedBytes(threadId);
+    return now < 0 ? 0 : now - baseline;
+  }
+
+  private static long allocatedBytes(long threadId) {
+    if (ManagementFactory.getThreadMXBean()
+        instanceof com.sun.management.ThreadMXBean threadBean) {
+      return threadBean.getThreadAllocatedBytes(threadId);
+    }
+    return -1;
+  }
+
+  private static class Attempt {
+    final PDDocument document;
+    final String overrun;
+    final long allocatedBytes;
+    final List<PageSection> sections;
+    final Map<String, Integer> anchorPages;
+
+    Attempt(
+        PDDocument document,
+        String overrun,
+        long allocatedBytes,
+        List<PageSection> sections,
+        Map<String, Integer> anchorPages) {
+      this.document = document;
+      this.overrun = overrun;
+      this.allocatedBytes = Math.max(0, allocatedBytes);
+      this.sections = sections;
+      this.anchorPages = anchorPages;
+    }
+  }
+
+  /** A rendered page, its timing, and the budget overrun that forced a fallback (if any). */
+  public static class RenderResult {
+    /**
+     * Document owning {@link #pages}. It must stay open until the pages have been saved into the
+     * target document: PDFBox closes the streams of unreachable documents on GC.
+     */
+    public final PDDocument document;
+
+    /** Every PDF page the source page was laid out on, in order. */
+    public final List<PDPage> pages = new ArrayList<>();
+
+    public final PageTiming timing;
+    public final String overrun;
+    public final List<PageSection> sections;
+
+    /**
+     * 0-based index into {@link #pages} of the page each heading id was laid out on, as reported
+     * by the renderer; empty for placeholder pages.
+     */
+    public final Map<String, Integer> anchorPages;
+
+    public RenderResult(
+        PDDocument document,
+        PageTiming timing,
+        String overrun,
+        List<PageSection> sections,
+        Map<String, Integer> anchorPages) {
+      this.document = document;
+      for (PDPage page : document.getPages()) {
+        pages.add(page);
+      }
+      this.timing = timing;
+      this.overrun = overrun;
+      this.sections = sections;
+      this.anchorPages = anchorPages;
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package tn.eternity.util;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Schedules page renders by predicted cost, most expensive first, so a few giant pages cannot
+ * start late and stretch the build. Cheap pages are packed into batches to amortize per-task
+ * overhead. Results are keyed by source path; callers still assemble pages in sitemap/sidebar
+ * order.
+ */
+public class PageScheduler {
+
+  /** Cheap pages are packed until a batch costs about 1/16th of a thread's share of the work. */
+  private static final int TASKS_PER_THREAD = 16;
+
+  private final RenderStats stats;
+  private final int threads;
+
+  /**
+   * @param stats Render history used to predict page costs
+   * @param threads Number of pages rendered concurrently
+   */
+  public PageScheduler(RenderStats stats, int threads) {
+    this.stats = stats;
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Orders pages into tasks, most expensive first (longest-processing-time scheduling).
+   *
+   * @param sources HTML files to render
+   * @return Tasks in the order they should be started
+   */
+  public List<Task> plan(Collection<Path> sources) {
+    Map<Path, Long> cost = new HashMap<>();
+    long total = 0;
+    for (Path source : sources) {
+      long predicted = stats.predictMillis(source);
+      cost.put(source, predicted);
+      total += predicted;
+    }
+    long quantum = Math.max(1, total / ((long) threads * TASKS_PER_THREAD));
+
+    List<Path> byCost = new ArrayList<>(sources);
+    byCost.sort(Comparator.comparingLong((Path p) -> cost.get(p)).reversed());
+    List<Task> tasks = new ArrayList<>();
+    Task batch = null;
+    for (Path source : byCost) {
+      long predicted = cost.get(source);
+      if (predicted >= quantum) {
+        Task task = new Task();
+        task.add(source, predicted);
+        tasks.add(task);
+        continue;
+      }
+      if (batch == null || batch.predictedMillis + predicted > quantum) {
+        batch = new Task();
+        tasks.add(batch);
+      }
+      batch.add(source, predicted);
+    }
+    tasks.sort(Comparator.comparingLong((Task t) -> t.predictedMillis).reversed());
+    return tasks;
+  }
+
+  /**
+   * Simulates the schedule on the configured number of threads.
+   *
+   * @param tasks Tasks from {@link #plan}
+   * @return Predicted wall-clock render time in milliseconds
+   */
+  public long predictWallMillis(List<Task> tasks) {
+    PriorityQueue<Long> workers = new PriorityQueue<>();
+    for (int i = 0; i < threads; i++) workers.add(0L);
+    long makespan = 0;
+    for (Task task : tasks) {
+      long finish = workers.poll() + task.predictedMillis;
+      workers.add(finish);
+      makespan = Math.max(makespan, finish);
+    }
+    return makespan;
+  }
+
+  /**
+   * Renders every page following the plan. A page that fails is recorded in {@code failures}
+   * and does not stop the others.
+   *
+   * @param renderer Renderer shared by all worker threads
+   * @param sources HTML files to render, with the title used for placeholder pages
+   * @param failures Receives the error of each page that could not be rendered
+   * @param cancelled Checked before each page; once true, no further page is started
+   * @return Render results keyed by HTML file
+   * @throws CancellationException if {@code cancelled} turned true or the thread was interrupted
+   * @throws IOException if a worker fails outside of a page render
+   */
+  public Map<Path, PageRenderer.RenderResult> renderAll(
+      PageRenderer renderer,
+      Map<Path, String> sources,
+      Map<Path, Exception> failures,
+      BooleanSupplier cancelled)
+      throws IOException {
+    Map<Path, PageRenderer.RenderResult> results = new ConcurrentHashMap<>();
+    if (threads == 1) {
+      for (Map.Entry<Path, String> source : sources.entrySet()) {
+        checkCancelled(cancelled);
+        render(renderer, source.getKey(), source.getValue(), results, failures);
+      }
+      return results;
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (Task task : plan(sources.keySet())) {
+        futures.add(
+            pool.submit(
+                () -> {
+                  for (Path source : task.pages) {
+                    checkCancelled(cancelled);
+                    render(renderer, source, sources.get(source), results, failures);
+                  }
+                  return null;
+                }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException io) throw io;
+      if (cause instanceof RuntimeException re) throw re;
+      throw new IOException("Page rendering failed", cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while rendering pages");
+    } finally {
+      pool.shutdownNow();
+    }
+    return results;
+  }
+
+  private static void checkCancelled(BooleanSupplier cancelled) {
+    if (cancelled.getAsBoolean() || Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Page rendering was cancelled");
+    }
+  }
+
+  private static void render(
+      PageRenderer renderer,
+      Path source,
+      String title,
+      Map<Path, PageRenderer.RenderResult> results,
+      Map<Path, Exception> failures)
+      throws IOException {
+    try {
+      results.put(source, renderer.render(source, title));
+    } catch (IOException | RuntimeException e) {
+      // An interrupt means the whole run is being cancelled, not that this page is broken
+      if (Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("Page rendering was cancelled");
+      }
+      failures.put(source, e);
+    }
+  }
+
+  /**
+   * Prints the schedule and predicted build time without rendering anything.
+   *
+   * @param sources HTML files that would be rendered
+   * @param top Number of most expensive pages to list (0 = none)
+   * @param out Stream to print the plan to
+   */
+  public void printPlan(Collection<Path> sources, int top, PrintStream out) {
+    List<Task> tasks = plan(sources);
+    long serial = tasks.stream().mapToLong(t -> t.predictedMillis).sum();
+    long known = sources.stream().filter(stats::hasHistory).count();
+    out.println(
+        "[INFO] Render plan: "
+            + sources.size()
+            + " pages in "
+            + tasks.size()
+            + " tasks on "
+            + threads
+            + " threads ("
+            + known
+            + " pages with history)");
+    out.println(
+        "[INFO] Predicted render time: "
+            + serial
+            + " ms serial, "
+            + predictWallMillis(tasks)
+            + " ms wall clock");
+    if (top <= 0) return;
+    out.println("[INFO] Most expensive pages:");
+    tasks.stream()
+        .flatMap(t -> t.pages.stream())
+        .limit(top)
+        .forEach(
+            p ->
+                out.printf(
+                    "[INFO]   %8d ms  %-8s %s%n",
+                    stats.predictMillis(p), stats.hasHistory(p) ? "history" : "estimate", p));
+  }
+
+  /** Pages rendered back to back on one worker thread. */
+  public static class Task {
+    public final List<Path> pages = new ArrayList<>();
+    public long predictedMillis;
+
+    void add(Path source, long predicted) {
+      pages.add(source);
+      predictedMillis += predicted;
+    }
+  }
+}
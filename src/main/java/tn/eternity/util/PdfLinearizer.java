@@ -0,0 +1,672 @@
+package tn.eternity.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+/**
+ * Rewrites a PDF as a linearized ("fast web view") file, following Annex F of ISO 32000-1.
+ * PDFBox 2.0 can read linearized files but not write them, so this class lays the objects out
+ * itself: linearization dictionary, first-page cross-reference section, catalog, primary hint
+ * stream and the first page's objects come first; the remaining pages, objects shared between
+ * them, everything else and the main cross-reference table follow.
+ */
+public class PdfLinearizer {
+
+  private static final COSName[] INHERITABLE = {
+    COSName.RESOURCES, COSName.MEDIA_BOX, COSName.CROP_BOX, COSName.ROTATE
+  };
+  /** Width reserved for numbers that are only known once the whole layout is fixed. */
+  private static final String PLACEHOLDER = "9999999999";
+
+  private final Map<COSBase, Integer> numbers = new IdentityHashMap<>();
+  private final Map<COSBase, Long> lengths = new IdentityHashMap<>();
+
+  private final List<COSBase> firstPage = new ArrayList<>();
+  private final List<List<COSBase>> otherPages = new ArrayList<>();
+  private final List<COSBase> shared = new ArrayList<>();
+  private final List<COSBase> remaining = new ArrayList<>();
+  /** Shared object identifiers (hint table indices) referenced by each page. */
+  private final List<List<Integer>> sharedRefs = new ArrayList<>();
+
+  private PdfLinearizer() {}
+
+  /**
+   * Linearizes a PDF in place.
+   *
+   * @param pdf The PDF to rewrite
+   * @throws IOException if the file cannot be read, is encrypted or has no pages
+   */
+  public static void linearize(File pdf) throws IOException {
+    File parent = pdf.getAbsoluteFile().getParentFile();
+    File temp = File.createTempFile(pdf.getName(), ".linearized", parent);
+    try {
+      linearize(pdf, temp);
+      Files.move(temp.toPath(), pdf.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp.toPath());
+    }
+  }
+
+  /**
+   * Writes a linearized copy of a PDF.
+   *
+   * @param source The PDF to read
+   * @param target The file to write; must differ from {@code source}
+   * @throws IOException if the file cannot be read, is encrypted or has no pages
+   */
+  public static void linearize(File source, File target) throws IOException {
+    try (PDDocument document = PDDocument.load(source, MemoryUsageSetting.setupMixed(64L << 20));
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(target), 1 << 16)) {
+      if (document.isEncrypted()) {
+        throw new IOException("Encrypted PDFs cannot be linearized");
+      }
+      if (document.getNumberOfPages() == 0) {
+        throw new IOException("PDF has no pages");
+      }
+      new PdfLinearizer().write(document, out);
+    }
+  }
+
+  private void write(PDDocument document, OutputStream out) throws IOException {
+    COSDictionary trailer = document.getDocument().getTrailer();
+    COSDictionary catalog = document.getDocumentCatalog().getCOSObject();
+
+    // ---- Partition objects by the first page that needs them ----
+    Map<COSBase, Boolean> stop = new IdentityHashMap<>();
+    List<COSDictionary> pageDicts = new ArrayList<>();
+    for (PDPage page : document.getPages()) {
+      pageDicts.add(page.getCOSObject());
+    }
+    collectTreeNodes(catalog.getDictionaryObject(COSName.PAGES), stop);
+    stop.put(catalog, Boolean.TRUE);
+    for (COSDictionary page : pageDicts) {
+      pushDownInheritedAttributes(page);
+      stop.put(page, Boolean.TRUE);
+    }
+
+    List<List<COSBase>> reachable = new ArrayList<>();
+    Map<COSBase, Integer> users = new IdentityHashMap<>();
+    for (COSDictionary page : pageDicts) {
+      List<COSBase> objects = new ArrayList<>();
+      objects.add(page);
+      Map<COSBase, Boolean> seen = new IdentityHashMap<>();
+      seen.put(page, Boolean.TRUE);
+      walkChildren(page, stop, seen, objects);
+      reachable.add(objects);
+      for (COSBase object : objects) users.merge(object, 1, Integer::sum);
+    }
+
+    Map<COSBase, Integer> placed = new IdentityHashMap<>();
+    firstPage.addAll(reachable.get(0));
+    for (COSBase object : firstPage) placed.put(object, 0);
+    sharedRefs.add(new ArrayList<>());
+    for (int i = 1; i < reachable.size(); i++) {
+      List<COSBase> section = new ArrayList<>();
+      for (COSBase object : reachable.get(i)) {
+        if (placed.containsKey(object)) continue;
+        if (users.get(object) > 1 && object != pageDicts.get(i)) {
+          shared.add(object);
+          placed.put(object, -1);
+        } else {
+          section.add(object);
+          placed.put(object, i);
+        }
+      }
+      otherPages.add(section);
+    }
+    Map<COSBase, Integer> sharedIds = new IdentityHashMap<>();
+    for (COSBase object : firstPage) sharedIds.put(object, sharedIds.size());
+    for (COSBase object : shared) sharedIds.put(object, sharedIds.size());
+    for (int i = 1; i < reachable.size(); i++) {
+      List<Integer> refs = new ArrayList<>();
+      for (COSBase object : reachable.get(i)) {
+        Integer owner = placed.get(object);
+        if (owner == 0 || owner == -1) refs.add(sharedIds.get(object));
+      }
+      sharedRefs.add(refs);
+    }
+
+    // Page tree nodes, outlines, names, document info and anything else
+    Map<COSBase, Boolean> seen = new IdentityHashMap<>();
+    for (COSBase object : placed.keySet()) seen.put(object, Boolean.TRUE);
+    seen.put(catalog, Boolean.TRUE);
+    walkChildren(catalog, new IdentityHashMap<>(), seen, remaining);
+    walk(trailer.getItem(COSName.INFO), new IdentityHashMap<>(), seen, remaining);
+
+    // ---- Number objects: later parts get 1..m, the first-page part m+1..n ----
+    int m = 0;
+    for (List<COSBase> section : otherPages) {
+      for (COSBase object : section) numbers.put(object, ++m);
+    }
+    for (COSBase object : shared) numbers.put(object, ++m);
+    for (COSBase object : remaining) numbers.put(object, ++m);
+    int linearizedNumber = m + 1;
+    numbers.put(catalog, m + 2);
+    int hintNumber = m + 3;
+    int n = hintNumber;
+    for (COSBase object : firstPage) numbers.put(object, ++n);
+
+    for (COSBase object : numbers.keySet()) {
+      CountingOutputStream counter = new CountingOutputStream(OutputStream.nullOutputStream());
+      writeObject(counter, object);
+      lengths.put(object, counter.count);
+    }
+
+    // ---- Lay out the file ----
+    float version = Math.max(1.4f, document.getVersion());
+    byte[] header =
+        ("%PDF-" + String.format(Locale.ROOT, "%.1f", version) + "\n%\u00e2\u00e3\u00cf\u00d3\n")
+            .getBytes(StandardCharsets.ISO_8859_1);
+    int firstPageNumber = numbers.get(firstPage.get(0));
+    int linearizedLength =
+        linearizationDictionary(linearizedNumber, 0, 0, 0, firstPageNumber, 0, pageDicts.size(), 0)
+            .length;
+    int firstXrefLength = firstPageXref(trailer, m, n, new long[n - m], 0, linearizedNumber).length;
+
+    long offset = header.length;
+    long linearizedOffset = offset;
+    offset += linearizedLength;
+    long firstXrefOffset = offset;
+    offset += firstXrefLength;
+    long catalogOffset = offset;
+    offset += lengths.get(catalog);
+    long hintOffset = offset;
+    int hintLength = hintStream(hintNumber, 0, 0, 0).length;
+    offset += hintLength;
+    Map<COSBase, Long> offsets = new IdentityHashMap<>();
+    for (COSBase object : firstPage) {
+      offsets.put(object, offset);
+      offset += lengths.get(object);
+    }
+    long firstPageEnd = offset;
+    for (List<COSBase> section : otherPages) {
+      for (COSBase object : section) {
+        offsets.put(object, offset);
+        offset += lengths.get(object);
+      }
+    }
+    for (COSBase object : shared) {
+      offsets.put(object, offset);
+      offset += lengths.get(object);
+    }
+    for (COSBase object : remaining) {
+      offsets.put(object, offset);
+      offset += lengths.get(object);
+    }
+    long mainXrefOffset = offset;
+    String mainXrefHead = "xref\n0 " + (m + 1);
+    // /T points at the end-of-line marker that precedes the first main xref entry
+    long mainXrefFirstEntry = mainXrefOffset + mainXrefHead.length();
+    StringBuilder mainXref = new StringBuilder(mainXrefHead).append('\n');
+    mainXref.append("0000000000 65535 f\r\n");
+    long[] mainEntries = new long[m + 1];
+    for (Map.Entry<COSBase, Long> entry : offsets.entrySet()) {
+      int number = numbers.get(entry.getKey());
+      if (number <= m) mainEntries[number] = entry.getValue();
+    }
+    for (int i = 1; i <= m; i++) appendXrefEntry(mainXref, mainEntries[i]);
+    mainXref
+        .append("trailer\n<< /Size ")
+        .append(m + 1)
+        .append(" >>\nstartxref\n")
+        .append(firstXrefOffset)
+        .append("\n%%EOF\n");
+    byte[] mainXrefBytes = mainXref.toString().getBytes(StandardCharsets.ISO_8859_1);
+    long fileLength = mainXrefOffset + mainXrefBytes.length;
+
+    long[] firstEntries = new long[n - m];
+    firstEntries[0] = linearizedOffset;
+    firstEntries[1] = catalogOffset;
+    firstEntries[2] = hintOffset;
+    for (COSBase object : firstPage) {
+      firstEntries[numbers.get(object) - m - 1] = offsets.get(object);
+    }
+
+    // Hint table offsets are computed as if the primary hint stream were not in the file
+    long firstPageOffset = offsets.get(firstPage.get(0)) - hintLength;
+    long sharedOffset = shared.isEmpty() ? 0 : offsets.get(shared.get(0)) - hintLength;
+    int firstSharedNumber = shared.isEmpty() ? 0 : numbers.get(shared.get(0));
+    byte[] hint = hintStream(hintNumber, firstPageOffset, firstSharedNumber, sharedOffset);
+    if (hint.length != hintLength) {
+      throw new IOException("Hint stream size changed during layout");
+    }
+
+    // ---- Write ----
+    CountingOutputStream file = new CountingOutputStream(out);
+    file.write(header);
+    file.write(
+        linearizationDictionary(
+            linearizedNumber,
+            fileLength,
+            hintOffset,
+            hintLength,
+            firstPageNumber,
+            firstPageEnd,
+            pageDicts.size(),
+            mainXrefFirstEntry));
+    file.write(firstPageXref(trailer, m, n, firstEntries, mainXrefOffset, linearizedNumber));
+    writeObject(file, catalog);
+    file.write(hint);
+    for (COSBase object : firstPage) writeObject(file, object);
+    for (List<COSBase> section : otherPages) {
+      for (COSBase object : section) writeObject(file, object);
+    }
+    for (COSBase object : shared) writeObject(file, object);
+    for (COSBase object : remaining) writeObject(file, object);
+    file.write(mainXrefBytes);
+    if (file.count != fileLength) {
+      throw new IOException("Linearized layout mismatch: " + file.count + " != " + fileLength);
+    }
+  }
+
+  // -------------------- Object graph --------------------
+
+  private static void collectTreeNodes(COSBase node, Map<COSBase, Boolean> nodes) {
+    if (node instanceof COSObject ref) node = ref.getObject();
+    if (!(node instanceof COSDictionary dict) || nodes.put(dict, Boolean.TRUE) != null) return;
+    if (dict.getDictionaryObject(COSName.KIDS) instanceof COSArray kids) {
+      for (int i = 0; i < kids.size(); i++) collectTreeNodes(kids.get(i), nodes);
+    }
+  }
+
+  /** Copies attributes inherited from page tree nodes onto the page so it displays alone. */
+  private static void pushDownInheritedAttributes(COSDictionary page) {
+    for (COSName key : INHERITABLE) {
+      if (page.getItem(key) != null) continue;
+      COSBase node = page.getDictionaryObject(COSName.PARENT);
+      for (int depth = 0; node instanceof COSDictionary parent && depth < 64; depth++) {
+        if (parent.getItem(key) != null) {
+          page.setItem(key, parent.getItem(key));
+          break;
+        }
+        node = parent.getDictionaryObject(COSName.PARENT);
+      }
+    }
+  }
+
+  /** Collects indirect objects reachable from {@code value}, not entering {@code stop}. */
+  private static void walk(
+      COSBase value, Map<COSBase, Boolean> stop, Map<COSBase, Boolean> seen, List<COSBase> out) {
+    if (value instanceof COSObject ref) {
+      COSBase target = ref.getObject();
+      if (target == null || target instanceof COSNull || stop.containsKey(target)) return;
+      if (seen.put(target, Boolean.TRUE) != null) return;
+      out.add(target);
+      walkChildren(target, stop, seen, out);
+    } else {
+      walkChildren(value, stop, seen, out);
+    }
+  }
+
+  private static void walkChildren(
+      COSBase value, Map<COSBase, Boolean> stop, Map<COSBase, Boolean> seen, List<COSBase> out) {
+    if (value instanceof COSDictionary dict) {
+      for (Map.Entry<COSName, COSBase> entry : dict.entrySet()) {
+        // Stream lengths are rewritten as direct integers
+        if (value instanceof COSStream && COSName.LENGTH.equals(entry.getKey())) continue;
+        walk(entry.getValue(), stop, seen, out);
+      }
+    } else if (value instanceof COSArray array) {
+      for (int i = 0; i < array.size(); i++) walk(array.get(i), stop, seen, out);
+    }
+  }
+
+  // -------------------- Serialization --------------------
+
+  private void writeObject(OutputStream out, COSBase object) throws IOException {
+    write(out, numbers.get(object) + " 0 obj\n");
+    if (object instanceof COSStream stream) {
+      write(out, "<<");
+      for (Map.Entry<COSName, COSBase> entry : stream.entrySet()) {
+        if (COSName.LENGTH.equals(entry.getKey())) continue;
+        entry.getKey().writePDF(out);
+        write(out, " ");
+        writeValue(out, entry.getValue());
+        write(out, "\n");
+      }
+      write(out, "/Length " + stream.getLength() + "\n>>\nstream\n");
+      try (InputStream raw = stream.createRawInputStream()) {
+        raw.transferTo(out);
+      }
+      write(out, "\nendstream");
+    } else {
+      writeDirect(out, object);
+    }
+    write(out, "\nendobj\n");
+  }
+
+  private void writeValue(OutputStream out, COSBase value) throws IOException {
+    if (value instanceof COSObject ref) value = ref.getObject();
+    Integer number = value == null ? null : numbers.get(value);
+    if (number != null) {
+      write(out, number + " 0 R");
+    } else if (value == null || value instanceof COSStream) {
+      // Dangling reference, or a stream no longer reachable from the trailer
+      write(out, "null");
+    } else {
+      writeDirect(out, value);
+    }
+  }
+
+  private void writeDirect(OutputStream out, COSBase value) throws IOException {
+    if (value instanceof COSDictionary dict) {
+      write(out, "<<");
+      for (Map.Entry<COSName, COSBase> entry : dict.entrySet()) {
+        entry.getKey().writePDF(out);
+        write(out, " ");
+        writeValue(out, entry.getValue());
+        write(out, "\n");
+      }
+      write(out, ">>");
+    } else if (value instanceof COSArray array) {
+      write(out, "[");
+      for (int i = 0; i < array.size(); i++) {
+        if (i > 0) write(out, " ");
+        writeValue(out, array.get(i));
+      }
+      write(out, "]");
+    } else if (value instanceof COSString string) {
+      write(out, "<" + toHex(string.getBytes()) + ">");
+    } else if (value instanceof COSName name) {
+      name.writePDF(out);
+    } else if (value instanceof COSInteger integer) {
+      integer.writePDF(out);
+    } else if (value instanceof COSFloat number) {
+      number.writePDF(out);
+    } else if (value instanceof COSBoolean bool) {
+      bool.writePDF(out);
+    } else {
+      write(out, "null");
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) hex.append(String.format("%02X", b & 0xFF));
+    return hex.toString();
+  }
+
+  private static void write(OutputStream out, String text) throws IOException {
+    out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private static void appendXrefEntry(StringBuilder xref, long offset) {
+    xref.append(String.format(Locale.ROOT, "%010d 00000 n\r\n", offset));
+  }
+
+  /** Pads {@code text} with spaces to the length it has with placeholder numbers. */
+  private static byte[] padded(String text, String template) {
+    StringBuilder sb = new StringBuilder(text);
+    while (sb.length() < template.length()) sb.append(' ');
+    return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  // -------------------- Linearization structures --------------------
+
+  private static byte[] linearizationDictionary(
+      int number,
+      long fileLength,
+      long hintOffset,
+      long hintLength,
+      int firstPageNumber,
+      long firstPageEnd,
+      int pageCount,
+      long mainXrefFirstEntry) {
+    String format =
+        "%d 0 obj\n<< /Linearized 1 /L %s /H [ %s %s ] /O %d /E %s /N %d /T %s";
+    String template =
+        String.format(
+            Locale.ROOT,
+            format,
+            number,
+            PLACEHOLDER,
+            PLACEHOLDER,
+            PLACEHOLDER,
+            firstPageNumber,
+            PLACEHOLDER,
+            pageCount,
+            PLACEHOLDER);
+    String text =
+        String.format(
+            Locale.ROOT,
+            format,
+            number,
+            fileLength,
+            hintOffset,
+            hintLength,
+            firstPageNumber,
+            firstPageEnd,
+            pageCount,
+            mainXrefFirstEntry);
+    String end = " >>\nendobj\n";
+    // /O and /N are known up front, so only the padded numbers vary
+    byte[] body = padded(text, template);
+    byte[] tail = end.getBytes(StandardCharsets.ISO_8859_1);
+    byte[] result = new byte[body.length + tail.length];
+    System.arraycopy(body, 0, result, 0, body.length);
+    System.arraycopy(tail, 0, result, body.length, tail.length);
+    return result;
+  }
+
+  private byte[] firstPageXref(
+      COSDictionary trailer, int m, int n, long[] entries, long prev, int first)
+      throws IOException {
+    StringBuilder xref = new StringBuilder("xref\n").append(first).append(' ').append(n - m);
+    xref.append('\n');
+    for (long entry : entries) appendXrefEntry(xref, entry);
+    ByteArrayOutputStream dict = new ByteArrayOutputStream();
+    write(dict, "trailer\n<< /Size " + (n + 1) + " /Root ");
+    writeValue(dict, trailer.getItem(COSName.ROOT));
+    if (trailer.getItem(COSName.INFO) != null) {
+      write(dict, " /Info ");
+      writeValue(dict, trailer.getItem(COSName.INFO));
+    }
+    if (trailer.getDictionaryObject(COSName.ID) instanceof COSArray id) {
+      write(dict, " /ID ");
+      writeDirect(dict, id);
+    }
+    String head = xref + dict.toString(StandardCharsets.ISO_8859_1) + " /Prev ";
+    byte[] body = padded(head + prev, head + PLACEHOLDER);
+    byte[] tail = " >>\nstartxref\n0\n%%EOF\n".getBytes(StandardCharsets.ISO_8859_1);
+    byte[] result = new byte[body.length + tail.length];
+    System.arraycopy(body, 0, result, 0, body.length);
+    System.arraycopy(tail, 0, result, body.length, tail.length);
+    return result;
+  }
+
+  /**
+   * Builds the primary hint stream object: the page offset hint table followed by the shared
+   * object hint table (ISO 32000-1, F.4). Every offset field is 32 bits wide, so the stream
+   * length does not depend on the offsets passed in.
+   *
+   */
+  private byte[] hintStream(
+      int number, long firstPageOffset, int firstSharedNumber, long sharedOffset) {
+    int pageCount = otherPages.size() + 1;
+    int[] objectCounts = new int[pageCount];
+    long[] pageLengths = new long[pageCount];
+    objectCounts[0] = firstPage.size();
+    pageLengths[0] = sumLengths(firstPage);
+    for (int i = 1; i < pageCount; i++) {
+      objectCounts[i] = otherPages.get(i - 1).size();
+      pageLengths[i] = sumLengths(otherPages.get(i - 1));
+    }
+    int minObjects = Integer.MAX_VALUE;
+    int maxObjects = 0;
+    long minLength = Long.MAX_VALUE;
+    long maxLength = 0;
+    int maxRefs = 0;
+    int maxId = 0;
+    for (int i = 0; i < pageCount; i++) {
+      minObjects = Math.min(minObjects, objectCounts[i]);
+      maxObjects = Math.max(maxObjects, objectCounts[i]);
+      minLength = Math.min(minLength, pageLengths[i]);
+      maxLength = Math.max(maxLength, pageLengths[i]);
+      maxRefs = Math.max(maxRefs, sharedRefs.get(i).size());
+      for (int id : sharedRefs.get(i)) maxId = Math.max(maxId, id);
+    }
+    int objectBits = bits(maxObjects - minObjects);
+    int lengthBits = bits(maxLength - minLength);
+    int refCountBits = bits(maxRefs);
+    int idBits = bits(maxId);
+
+    BitWriter hint = new BitWriter();
+    // Page offset hint table header (Table F.3)
+    hint.write(minObjects, 32);
+    hint.write(firstPageOffset, 32);
+    hint.write(objectBits, 16);
+    hint.write(minLength, 32);
+    hint.write(lengthBits, 16);
+    // Content stream offsets/lengths are given relative to the whole page section
+    hint.write(0, 32);
+    hint.write(0, 16);
+    hint.write(minLength, 32);
+    hint.write(lengthBits, 16);
+    hint.write(refCountBits, 16);
+    hint.write(idBits, 16);
+    hint.write(0, 16);
+    hint.write(1, 16);
+    // Per-page entries (Table F.4), one item for all pages at a time
+    for (int count : objectCounts) hint.write(count - minObjects, objectBits);
+    hint.flush();
+    for (long length : pageLengths) hint.write(length - minLength, lengthBits);
+    hint.flush();
+    for (List<Integer> refs : sharedRefs) hint.write(refs.size(), refCountBits);
+    hint.flush();
+    for (List<Integer> refs : sharedRefs) {
+      for (int id : refs) hint.write(id, idBits);
+    }
+    hint.flush();
+    // Fractional position numerators take zero bits, so that item is empty
+    for (long length : pageLengths) hint.write(length - minLength, lengthBits);
+    hint.flush();
+
+    int sharedTableOffset = hint.size();
+    List<COSBase> groups = new ArrayList<>(firstPage);
+    groups.addAll(shared);
+    long minGroup = Long.MAX_VALUE;
+    long maxGroup = 0;
+    for (COSBase object : groups) {
+      minGroup = Math.min(minGroup, lengths.get(object));
+      maxGroup = Math.max(maxGroup, lengths.get(object));
+    }
+    int groupBits = bits(maxGroup - minGroup);
+    // Shared object hint table header (Table F.5); every group holds a single object
+    hint.write(firstSharedNumber, 32);
+    hint.write(sharedOffset, 32);
+    hint.write(firstPage.size(), 32);
+    hint.write(groups.size(), 32);
+    hint.write(0, 16);
+    hint.write(minGroup, 32);
+    hint.write(groupBits, 16);
+    // Per-group entries (Table F.6)
+    for (COSBase object : groups) hint.write(lengths.get(object) - minGroup, groupBits);
+    hint.flush();
+    for (int i = 0; i < groups.size(); i++) hint.write(0, 1); // no MD5 signatures
+    hint.flush();
+
+    byte[] data = hint.toByteArray();
+    String head =
+        number
+            + " 0 obj\n<< /S "
+            + sharedTableOffset
+            + " /Length "
+            + data.length
+            + " >>\nstream\n";
+    byte[] start = head.getBytes(StandardCharsets.ISO_8859_1);
+    byte[] end = "\nendstream\nendobj\n".getBytes(StandardCharsets.ISO_8859_1);
+    byte[] result = new byte[start.length + data.length + end.length];
+    System.arraycopy(start, 0, result, 0, start.length);
+    System.arraycopy(data, 0, result, start.length, data.length);
+    System.arraycopy(end, 0, result, start.length + data.length, end.length);
+    return result;
+  }
+
+  private long sumLengths(List<COSBase> objects) {
+    long total = 0;
+    for (COSBase object : objects) total += lengths.get(object);
+    return total;
+  }
+
+  private static int bits(long value) {
+    return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+  }
+
+  /** Writes big-endian bit fields; {@link #flush} pads to the next byte boundary. */
+  private static class BitWriter {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int current;
+    private int used;
+
+    void write(long value, int bits) {
+      for (int i = bits - 1; i >= 0; i--) {
+        current = (current << 1) | (int) ((value >>> i) & 1);
+        if (++used == 8) {
+          bytes.write(current);
+          current = 0;
+          used = 0;
+        }
+      }
+    }
+
+    void flush() {
+      if (used > 0) write(0, 8 - used);
+    }
+
+    int size() {
+      return bytes.size();
+    }
+
+    byte[] toByteArray() {
+      return bytes.toByteArray();
+    }
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+    private final OutputStream out;
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package tn.eternity.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineNode;
+
+/**
+ * Edits an existing PDF and appends the edits as an incremental update (ISO 32000-1, 7.5.6).
+ * Only the page tree nodes, pages and outline items that actually changed are written, together
+ * with newly added pages; everything else stays where it is in the original file.
+ */
+public class PdfPatcher implements AutoCloseable {
+
+  private final File source;
+  private final PDDocument document;
+  private final List<PDPage> originalPages = new ArrayList<>();
+  /** Existing dictionaries to rewrite; new objects reachable from them are written as well. */
+  private final Set<COSDictionary> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * @param pdf The PDF to update
+   * @throws IOException if the file cannot be read or is encrypted
+   */
+  public PdfPatcher(File pdf) throws IOException {
+    this.source = pdf;
+    this.document = PDDocument.load(pdf, MemoryUsageSetting.setupMixed(64L << 20));
+    if (document.isEncrypted()) {
+      document.close();
+      throw new IOException("Encrypted PDFs cannot be updated incrementally");
+    }
+    for (PDPage page : document.getPages()) {
+      originalPages.add(page);
+    }
+  }
+
+  /** The loaded document; pages added to it must come from documents that stay open. */
+  public PDDocument document() {
+    return document;
+  }
+
+  /** Pages of the PDF as it was loaded, in order. */
+  public List<PDPage> originalPages() {
+    return Collections.unmodifiableList(originalPages);
+  }
+
+  /**
+   * Makes the page tree list exactly {@code pages}, in order. Original pages that keep their
+   * relative order stay in place; the others are removed, and moved or new pages are inserted
+   * next to their predecessor.
+   *
+   * @param pages Original pages to keep and new pages to add
+   */
+  public void setPages(List<PDPage> pages) {
+    Map<COSDictionary, Integer> originalIndex = new IdentityHashMap<>();
+    for (PDPage page : originalPages) {
+      originalIndex.put(page.getCOSObject(), originalIndex.size());
+    }
+    List<PDPage> existing = new ArrayList<>();
+    for (PDPage page : pages) {
+      if (originalIndex.containsKey(page.getCOSObject())) existing.add(page);
+    }
+    int[] positions = new int[existing.size()];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = originalIndex.get(existing.get(i).getCOSObject());
+    }
+    boolean[] inOrder = longestIncreasingRun(positions);
+    Set<COSDictionary> stays = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = 0; i < inOrder.length; i++) {
+      if (inOrder[i]) stays.add(existing.get(i).getCOSObject());
+    }
+
+    PDPageTree tree = document.getPages();
+    for (PDPage page : originalPages) {
+      if (!stays.contains(page.getCOSObject())) {
+        touchAncestors(page.getCOSObject());
+        tree.remove(page);
+      }
+    }
+    PDPage previous = null;
+    for (PDPage page : pages) {
+      if (!stays.contains(page.getCOSObject())) {
+        if (previous != null) {
+          tree.insertAfter(page, previous);
+        } else if (tree.getCount() > 0) {
+          tree.insertBefore(page, tree.get(0));
+        } else {
+          tree.add(page);
+        }
+        // Moved pages get a new /Parent; new pages have no object number yet
+        changed.add(page.getCOSObject());
+        touchAncestors(page.getCOSObject());
+      }
+      previous = page;
+    }
+  }
+
+  /**
+   * Makes the outline match {@code outline}. When both have the same shape, only items whose
+   * title or target page differ are rewritten, keeping any styling applied to the others;
+   * otherwise {@code outline} replaces the old outline.
+   *
+   * @param outline The outline as a full generation would build it
+   * @throws IOException if an outline destination cannot be read
+   */
+  public void setOutline(PDDocumentOutline outline) throws IOException {
+    PDDocumentCatalog catalog = document.getDocumentCatalog();
+    PDDocumentOutline current = catalog.getDocumentOutline();
+    List<PDOutlineItem[]> edits = new ArrayList<>();
+    if (current != null && outline != null && sameShape(current, outline, edits)) {
+      for (PDOutlineItem[] edit : edits) {
+        edit[0].setTitle(edit[1].getTitle());
+        edit[0].setDestination(edit[1].getDestination());
+        changed.add(edit[0].getCOSObject());
+      }
+      return;
+    }
+    if (current == null && outline == null) return;
+    catalog.setDocumentOutline(outline);
+    changed.add(catalog.getCOSObject());
+  }
+
+  /** Whether anything was edited, i.e. whether {@link #save} would write an update. */
+  public boolean hasChanges() {
+    return !changed.isEmpty();
+  }
+
+  /**
+   * Appends the edits to the PDF this patcher was created for and closes the document. The file
+   * is appended to in place and only the update's bytes are written, so publishing by delta
+   * transfer only sends the update. Reads are still proportional to the file size: PDFBox streams
+   * its copy of the whole original through {@link UpdateOnlyStream}, which drops it. If writing
+   * fails, the file is truncated back to its original length.
+   *
+   * @return Number of bytes appended
+   * @throws IOException if the update cannot be written
+   */
+  public long save() throws IOException {
+    long original = source.length();
+    try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.WRITE)) {
+      channel.position(original);
+      UpdateOnlyStream update =
+          new UpdateOnlyStream(
+              new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), original);
+      try {
+        // The original is only read up to its old length, so appending while it is open is safe
+        document.saveIncremental(update, changed);
+        update.flush();
+      } catch (IOException | RuntimeException e) {
+        channel.truncate(original);
+        throw e;
+      }
+      return update.written;
+    } finally {
+      document.close();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    document.close();
+  }
+
+  /** Marks every page tree node above {@code page} for rewriting (their /Kids or /Count change). */
+  private void touchAncestors(COSDictionary page) {
+    COSDictionary node = page.getCOSDictionary(COSName.PARENT);
+    while (node != null && changed.add(node)) {
+      if (node.getItem(COSName.KIDS) instanceof COSObject) {
+        node.getCOSArray(COSName.KIDS).setNeedToBeUpdated(true);
+      }
+      node = node.getCOSDictionary(COSName.PARENT);
+    }
+  }
+
+  private static boolean sameShape(
+      PDOutlineNode current, PDOutlineNode outline, List<PDOutlineItem[]> edits)
+      throws IOException {
+    Iterator<PDOutlineItem> before = current.children().iterator();
+    Iterator<PDOutlineItem> after = outline.children().iterator();
+    while (before.hasNext() && after.hasNext()) {
+      PDOutlineItem old = before.next();
+      PDOutlineItem item = after.next();
+      if (!Objects.equals(old.getTitle(), item.getTitle()) || target(old) != target(item)) {
+        edits.add(new PDOutlineItem[] {old, item});
+      }
+      if (!sameShape(old, item, edits)) return false;
+    }
+    return !before.hasNext() && !after.hasNext();
+  }
+
+  private static COSDictionary target(PDOutlineItem item) throws IOException {
+    PDDestination destination = item.getDestination();
+    if (destination instanceof PDPageDestination pageDestination) {
+      PDPage page = pageDestination.getPage();
+      return page != null ? page.getCOSObject() : null;
+    }
+    return null;
+  }
+
+  /** Marks the longest subsequence of {@code values} that is strictly increasing. */
+  private static boolean[] longestIncreasingRun(int[] values) {
+    int[] tails = new int[values.length];
+    int[] previous = new int[values.length];
+    int length = 0;
+    for (int i = 0; i < values.length; i++) {
+      int lo = 0;
+      int hi = length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (values[tails[mid]] < values[i]) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      previous[i] = lo > 0 ? tails[lo - 1] : -1;
+      tails[lo] = i;
+      if (lo == length) length++;
+    }
+    boolean[] marked = new boolean[values.length];
+    for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+      marked[i] = true;
+    }
+    return marked;
+  }
+
+  /**
+   * Passes on what {@link PDDocument#saveIncremental} writes after its copy of the original file.
+   * Closing only flushes, since the channel below is owned by {@link #save}.
+   */
+  private static final class UpdateOnlyStream extends OutputStream {
+
+    private final OutputStream out;
+    private long skip;
+    private long written;
+
+    UpdateOnlyStream(OutputStream out, long skip) {
+      this.out = out;
+      this.skip = skip;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (skip > 0) {
+        skip--;
+      } else {
+        out.write(b);
+        written++;
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      int skipped = (int) Math.min(skip, len);
+      skip -= skipped;
+      if (len > skipped) {
+        out.write(b, off + skipped, len - skipped);
+        written += len - skipped;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.flush();
+    }
+  }
+}
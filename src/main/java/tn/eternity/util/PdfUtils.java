@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 /**
  * Utility class for PDF-related helpers, such as JSON serialization.
@@ -24,4 +27,18 @@ public class PdfUtils {
     mapper.enable(SerializationFeature.INDENT_OUTPUT);
     mapper.writeValue(output, data);
   }
+
+  /**
+   * Computes the SHA-256 hash of the given bytes, e.g. to detect changed source pages.
+   *
+   * @param data The bytes to hash
+   * @return The hash as lowercase hex
+   */
+  public static String sha256(byte[] data) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 }
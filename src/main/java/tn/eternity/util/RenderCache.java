@@ -0,0 +1,214 @@
+package tn.eternity.util;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe caches shared by every {@link PageRenderer} in the JVM, so that several generation
+ * jobs (e.g. a batch run) pay for font metrics, stylesheets and duplicated pages only once.
+ * Rendered pages are keyed by content, not location: the renderer builds the key from the
+ * site-relative XHTML and the content hashes of the resources it links, so the same page in two
+ * sites or versions renders once. A page being rendered is shared with every job asking for it
+ * in the meantime.
+ */
+public class RenderCache {
+
+  /** Mapped (off-heap) memory kept for fingerprinted assets. */
+  private static final long DEFAULT_ASSET_CACHE_BYTES = 512L << 20;
+
+  private final ConcurrentHashMap<String, FSCacheValue> fontMetrics = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Path, FileValue> stylesheets = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Path, FileValue> resourceHashes = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, CompletableFuture<RenderedPage>> pages =
+      new ConcurrentHashMap<>();
+  private final AtomicLong pageBytes = new AtomicLong();
+  private final AtomicLong pageHits = new AtomicLong();
+  private final AtomicLong pageMisses = new AtomicLong();
+  private final long maxPageBytes;
+  private final MappedInput input = new MappedInput(DEFAULT_ASSET_CACHE_BYTES);
+
+  /**
+   * @param maxPageBytes Upper bound for the rendered-page cache; 0 disables page reuse
+   */
+  public RenderCache(long maxPageBytes) {
+    this.maxPageBytes = maxPageBytes;
+  }
+
+  /** Mapped input serving file: URLs (stylesheets, images, fonts) to openhtmltopdf. */
+  public MappedInput input() {
+    return input;
+  }
+
+  /** Whether rendered pages are kept for reuse; callers can skip computing cache keys if not. */
+  public boolean reusesPages() {
+    return maxPageBytes > 0;
+  }
+
+  /** Font metrics store passed to openhtmltopdf via {@code useCacheStore}. */
+  public FSCacheEx<String, FSCacheValue> fontMetricsStore() {
+    return new FSCacheEx<>() {
+      @Override
+      public void put(String key, FSCacheValue value) {
+        fontMetrics.put(key, value);
+      }
+
+      @Override
+      public FSCacheValue get(String key, Callable<? extends FSCacheValue> loader) {
+        return fontMetrics.computeIfAbsent(
+            key,
+            k -> {
+              try {
+                return loader.call();
+              } catch (Exception e) {
+                throw new IllegalStateException("Font metrics load failed for " + k, e);
+              }
+            });
+      }
+
+      @Override
+      public FSCacheValue get(String key) {
+        return fontMetrics.get(key);
+      }
+    };
+  }
+
+  /**
+   * Returns the contents of a stylesheet, reading it again only once its modification time or
+   * size changes, so a long-running service picks up edits to the print CSS.
+   *
+   * @param cssFile Path to the CSS file
+   * @return The stylesheet text
+   * @throws IOException if the file cannot be read
+   */
+  public String stylesheet(Path cssFile) throws IOException {
+    return readThrough(stylesheets, cssFile, Files::readString);
+  }
+
+  /**
+   * Returns the SHA-256 of a file's contents, reading it again only once its modification time
+   * or size changes.
+   *
+   * @param file The file to hash
+   * @return Hex digest of the contents
+   * @throws IOException if the file cannot be read
+   */
+  public String resourceHash(Path file) throws IOException {
+    return readThrough(resourceHashes, file, p -> PdfUtils.sha256(Files.readAllBytes(p)));
+  }
+
+  private static String readThrough(
+      ConcurrentHashMap<Path, FileValue> cache, Path file, FileReader reader) throws IOException {
+    Path key = file.toAbsolutePath().normalize();
+    long modified = Files.getLastModifiedTime(key).toMillis();
+    long size = Files.size(key);
+    FileValue cached = cache.get(key);
+    if (cached != null && cached.modified == modified && cached.size == size) {
+      return cached.value;
+    }
+    String value = reader.read(key);
+    cache.put(key, new FileValue(modified, size, value));
+    return value;
+  }
+
+  /**
+   * Returns a rendered page, rendering it only if no other thread has rendered or is rendering a
+   * page with the same key; concurrent callers wait for the first render. Pages are kept while
+   * the cache is below its size bound.
+   *
+   * @param pageKey Everything the rendered bytes depend on: the site-relative XHTML and the
+   *     content hashes of the resources it resolves, but no absolute paths
+   * @param render Renders the page on a cache miss
+   * @return The rendered page
+   * @throws IOException if rendering fails or the thread is interrupted while waiting
+   */
+  public RenderedPage renderedPage(String pageKey, PageRender render) throws IOException {
+    if (maxPageBytes <= 0) return render.render();
+    String key = PdfUtils.sha256(pageKey.getBytes(StandardCharsets.UTF_8));
+    CompletableFuture<RenderedPage> pending = new CompletableFuture<>();
+    CompletableFuture<RenderedPage> existing = pages.putIfAbsent(key, pending);
+    if (existing != null) {
+      pageHits.incrementAndGet();
+      try {
+        return existing.get();
+      } catch (ExecutionException e) {
+        // The first render failed for its own caller (e.g. it was over budget); try again
+        return render.render();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for a shared render");
+      }
+    }
+
+    pageMisses.incrementAndGet();
+    RenderedPage page;
+    try {
+      page = render.render();
+    } catch (IOException | RuntimeException | Error e) {
+      pages.remove(key, pending);
+      pending.completeExceptionally(e);
+      throw e;
+    }
+    pending.complete(page);
+    if (pageBytes.addAndGet(page.pdf.length) > maxPageBytes) {
+      // Waiters already have the bytes; just stop keeping them
+      pageBytes.addAndGet(-page.pdf.length);
+      pages.remove(key, pending);
+    }
+    return page;
+  }
+
+  public long pageHits() {
+    return pageHits.get();
+  }
+
+  public long pageMisses() {
+    return pageMisses.get();
+  }
+
+  /** Renders a page to PDF bytes on a cache miss. */
+  @FunctionalInterface
+  public interface PageRender {
+    RenderedPage render() throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface FileReader {
+    String read(Path file) throws IOException;
+  }
+
+  /** A value derived from a file, valid while the file keeps its modification time and size. */
+  private static class FileValue {
+    final long modified;
+    final long size;
+    final String value;
+
+    FileValue(long modified, long size, String value) {
+      this.modified = modified;
+      this.size = size;
+      this.value = value;
+    }
+  }
+
+  /** A page's PDF bytes and the layout facts read from the renderer while producing them. */
+  public static class RenderedPage {
+    public final byte[] pdf;
+    /** 0-based page each heading id was laid out on. */
+    public final Map<String, Integer> anchorPages;
+
+    public RenderedPage(byte[] pdf, Map<String, Integer> anchorPages) {
+      this.pdf = pdf;
+      this.anchorPages = Map.copyOf(anchorPages);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package tn.eternity.util;
+
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import tn.eternity.model.PageTiming;
+
+/**
+ * Utility for summarizing per-page render timings at the end of a run.
+ * Prints tail-latency percentiles and the slowest pages so pathological pages are easy to spot.
+ */
+public class RenderReport {
+
+  /**
+   * Prints a render time summary followed by the slowest pages.
+   *
+   * @param timings Timings collected during the run
+   * @param slowest Number of slowest pages to list (0 disables the report)
+   * @param out Stream to print the report to
+   */
+  public static void print(List<PageTiming> timings, int slowest, PrintStream out) {
+    if (slowest <= 0 || timings.isEmpty()) return;
+    List<PageTiming> sorted =
+        timings.stream()
+            .sorted(Comparator.comparingLong((PageTiming t) -> t.renderMillis).reversed())
+            .collect(Collectors.toList());
+    long total = sorted.stream().mapToLong(t -> t.renderMillis).sum();
+    long degraded = sorted.stream().filter(t -> !"FULL".equals(t.profile)).count();
+
+    out.println(
+        "[INFO] Rendered "
+            + sorted.size()
+            + " pages in "
+            + total
+            + " ms (p50 "
+            + percentile(sorted, 50)
+            + " ms, p95 "
+            + percentile(sorted, 95)
+            + " ms, p99 "
+            + percentile(sorted, 99)
+            + " ms, max "
+            + sorted.get(0).renderMillis
+            + " ms, "
+            + degraded
+            + " degraded)");
+    out.println("[INFO] Slowest pages:");
+    for (PageTiming t : sorted.subList(0, Math.min(slowest, sorted.size()))) {
+      out.printf(
+          "[INFO]   %8d ms  %6d MB  %-11s %s%n",
+          t.renderMillis, t.allocatedBytes >> 20, t.profile, t.source);
+    }
+  }
+
+  /**
+   * Returns the given percentile of a list sorted by descending render time (nearest-rank).
+   */
+  static long percentile(List<PageTiming> sortedDescending, int percentile) {
+    int n = sortedDescending.size();
+    int rank = (int) Math.ceil(percentile / 100.0 * n);
+    return sortedDescending.get(n - Math.max(rank, 1)).renderMillis;
+  }
+}
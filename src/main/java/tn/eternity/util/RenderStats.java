@@ -0,0 +1,129 @@
+package tn.eternity.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import tn.eternity.model.PageStats;
+import tn.eternity.model.PageTiming;
+
+/**
+ * Per-page render history persisted as a small JSON file between runs.
+ * Used to predict how expensive each page will be so the scheduler can start the giants first.
+ * Pages are keyed by their path relative to the input directory, so the history survives moving
+ * or re-checking out the site.
+ */
+public class RenderStats {
+
+  /** Assumed cost for pages without history when no history exists at all (ms per KB of HTML). */
+  private static final double DEFAULT_MILLIS_PER_KB = 1.0;
+
+  private final Path file;
+  private final Path inputDir;
+  private final Map<String, PageStats> pages;
+  private final double millisPerKb;
+
+  private RenderStats(Path file, Path inputDir, Map<String, PageStats> pages) {
+    this.file = file;
+    this.inputDir = inputDir.toAbsolutePath().normalize();
+    this.pages = pages;
+    this.millisPerKb = millisPerKb(pages);
+  }
+
+  /**
+   * Loads render history, starting empty if the file is missing or unreadable.
+   *
+   * @param file The stats file, or null to keep history in memory only
+   * @param inputDir Directory the recorded page paths are relative to
+   * @param warnings Receives a message if the file exists but cannot be read
+   * @return The loaded statistics
+   */
+  public static RenderStats load(Path file, Path inputDir, Consumer<String> warnings) {
+    Map<String, PageStats> pages = new ConcurrentHashMap<>();
+    if (file != null && Files.exists(file)) {
+      try {
+        pages.putAll(
+            new ObjectMapper()
+                .readValue(file.toFile(), new TypeReference<Map<String, PageStats>>() {}));
+      } catch (IOException e) {
+        warnings.accept("Ignoring unreadable render stats " + file + ": " + e.getMessage());
+      }
+    }
+    return new RenderStats(file, inputDir, pages);
+  }
+
+  /**
+   * Predicts the render time of a page from its history, or from its size if it has none.
+   *
+   * @param source The HTML file to render
+   * @return Predicted render time in milliseconds
+   */
+  public long predictMillis(Path source) {
+    PageStats known = pages.get(key(source));
+    if (known != null) return known.renderMillis;
+    long bytes;
+    try {
+      bytes = Files.size(source);
+    } catch (IOException e) {
+      bytes = 0;
+    }
+    return Math.max(1, Math.round(bytes / 1024.0 * millisPerKb));
+  }
+
+  /** Whether the page was rendered in a previous run. */
+  public boolean hasHistory(Path source) {
+    return pages.containsKey(key(source));
+  }
+
+  /**
+   * Folds this run's timings into the history (exponentially weighted, so one slow run on a
+   * busy machine does not dominate).
+   *
+   * @param timings Timings collected during the run
+   */
+  public void record(Collection<PageTiming> timings) {
+    for (PageTiming t : timings) {
+      pages.merge(
+          key(Path.of(t.source)),
+          new PageStats(t.renderMillis, t.htmlBytes, 1),
+          (old, now) ->
+              new PageStats(
+                  (old.renderMillis + now.renderMillis) / 2, now.htmlBytes, old.runs + 1));
+    }
+  }
+
+  /**
+   * Writes the history back to the stats file.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  public void save() throws IOException {
+    if (file != null) {
+      PdfUtils.writeJson(new TreeMap<>(pages), file.toFile());
+    }
+  }
+
+  /** Average cost per KB of HTML across all known pages, used for pages never seen before. */
+  private static double millisPerKb(Map<String, PageStats> pages) {
+    long millis = 0;
+    long bytes = 0;
+    for (PageStats s : pages.values()) {
+      millis += s.renderMillis;
+      bytes += s.htmlBytes;
+    }
+    return bytes > 0 ? millis / (bytes / 1024.0) : DEFAULT_MILLIS_PER_KB;
+  }
+
+  private String key(Path source) {
+    Path path = source.toAbsolutePath().normalize();
+    Path relative = path.startsWith(inputDir) ? inputDir.relativize(path) : path;
+    return relative.toString().replace(File.separatorChar, '/');
+  }
+}
@@ -0,0 +1,180 @@
+package tn.eternity.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import tn.eternity.model.PageSection;
+import tn.eternity.model.SearchIndex;
+
+/**
+ * Builds a full-text search index as a by-product of generation. Text comes from the cleaned
+ * Jsoup DOM each page is rendered from, so nothing downstream has to extract it from the PDF.
+ * Pages are split into sections at h1-h4 headings; terms map to those sections and the PDF
+ * page they land on, as placed by the renderer's layout.
+ */
+public class SearchIndexBuilder {
+
+  private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}][\\p{L}\\p{N}_]*");
+  private static final Set<String> HEADINGS = Set.of("h1", "h2", "h3", "h4");
+  private static final Set<String> STOP_WORDS =
+      Set.of(
+          "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of",
+          "on", "or", "that", "the", "this", "to", "was", "with");
+
+  private final List<SearchIndex.Entry> sections = new ArrayList<>();
+  private final Map<String, List<int[]>> postings = new HashMap<>();
+
+  /**
+   * Splits the main content of a cleaned page into headed sections.
+   *
+   * @param doc The page DOM after Docusaurus chrome has been removed
+   * @return Sections in document order; text before the first heading uses the page title
+   */
+  public static List<PageSection> extractSections(Document doc) {
+    Element root = doc.selectFirst("article");
+    if (root == null) root = doc.body();
+    if (root == null) return new ArrayList<>();
+    SectionCollector collector = new SectionCollector(doc.title().split("\\|")[0].trim());
+    NodeTraversor.traverse(collector, root);
+    collector.flush();
+    return collector.sections;
+  }
+
+  /**
+   * Indexes the sections of one source page. Each section is placed on the page its heading was
+   * laid out on; a section without a known position falls back to the source's first page.
+   * Sources must be added in PDF order.
+   *
+   * @param firstPage 1-based number of the source's first page in the generated PDF
+   * @param pageCount Number of PDF pages the source was rendered on
+   * @param source Source HTML file, relative to the input directory
+   * @param pageSections Sections extracted with {@link #extractSections}
+   * @param anchorPages 0-based page within the source of each heading id, from the layout
+   */
+  public void addSource(
+      int firstPage,
+      int pageCount,
+      String source,
+      List<PageSection> pageSections,
+      Map<String, Integer> anchorPages) {
+    for (PageSection section : pageSections) {
+      Integer offset = section.anchor != null ? anchorPages.get(section.anchor) : null;
+      // Trailing blank pages are dropped after layout; nothing headed can land on them
+      if (offset == null || offset < 0 || offset >= pageCount) offset = 0;
+      int id = sections.size();
+      sections.add(
+          new SearchIndex.Entry(firstPage + offset, section.title, section.anchor, source));
+      Map<String, Integer> counts = new HashMap<>();
+      Matcher m = TOKEN.matcher(section.title + " " + section.text);
+      while (m.find()) {
+        String term = m.group().toLowerCase(Locale.ROOT);
+        if (term.length() > 1 && !STOP_WORDS.contains(term)) {
+          counts.merge(term, 1, Integer::sum);
+        }
+      }
+      counts.forEach(
+          (term, count) -> postings.computeIfAbsent(term, t -> new ArrayList<>()).add(
+              new int[] {id, count}));
+    }
+  }
+
+  /**
+   * Writes the index as compact (unindented) JSON.
+   *
+   * @param output The index file to write
+   * @param pdfName Name of the PDF the page numbers refer to
+   * @throws IOException if writing fails
+   */
+  public void write(File output, String pdfName) throws IOException {
+    SearchIndex index = new SearchIndex();
+    index.pdf = pdfName;
+    index.sections = sections;
+    for (Map.Entry<String, List<int[]>> entry : postings.entrySet()) {
+      List<int[]> list = entry.getValue();
+      int[] flat = new int[list.size() * 2];
+      int previous = 0;
+      for (int i = 0; i < list.size(); i++) {
+        // Section ids are added in increasing order, so gaps are never negative
+        flat[2 * i] = list.get(i)[0] - previous;
+        flat[2 * i + 1] = list.get(i)[1];
+        previous = list.get(i)[0];
+      }
+      index.terms.put(entry.getKey(), flat);
+    }
+    new ObjectMapper().writeValue(output, index);
+  }
+
+  public int sectionCount() {
+    return sections.size();
+  }
+
+  public int termCount() {
+    return postings.size();
+  }
+
+  /** Walks the content DOM, starting a new section at every heading. */
+  private static class SectionCollector implements NodeVisitor {
+    final List<PageSection> sections = new ArrayList<>();
+    private String title;
+    private String anchor;
+    private StringBuilder text = new StringBuilder();
+    private int headingDepth;
+
+    SectionCollector(String pageTitle) {
+      this.title = pageTitle;
+    }
+
+    @Override
+    public void head(Node node, int depth) {
+      if (node instanceof Element el && HEADINGS.contains(el.normalName())) {
+        if (headingDepth++ == 0) {
+          flush();
+          // Docusaurus appends a zero-width "#" hash link to every heading
+          title = el.text().replace("\u200B", "").trim();
+          anchor = el.id().isEmpty() ? null : el.id();
+        }
+      } else if (headingDepth == 0 && node instanceof TextNode textNode) {
+        // Inline siblings join as written: <b>Foo</b>bar is one word
+        text.append(textNode.text());
+      } else if (node instanceof Element el && breaksText(el)) {
+        text.append(' ');
+      }
+    }
+
+    @Override
+    public void tail(Node node, int depth) {
+      if (node instanceof Element el && HEADINGS.contains(el.normalName())) {
+        headingDepth--;
+      } else if (node instanceof Element el && breaksText(el)) {
+        text.append(' ');
+      }
+    }
+
+    /** Block elements and line breaks separate words even without whitespace in the source. */
+    private static boolean breaksText(Element el) {
+      return el.isBlock() || el.normalName().equals("br");
+    }
+
+    void flush() {
+      String body = text.toString().replaceAll("\\s+", " ").trim();
+      if (!body.isEmpty() || (title != null && !title.isEmpty() && anchor != null)) {
+        sections.add(new PageSection(title, anchor, body));
+      }
+      text = new StringBuilder();
+    }
+  }
+}
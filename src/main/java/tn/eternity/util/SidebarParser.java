@@ -1,6 +1,14 @@
 package tn.eternity.util;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import tn.eternity.model.SidebarItem;
 
 /**
@@ -9,13 +17,40 @@ import tn.eternity.model.SidebarItem;
  */
 public class SidebarParser {
 
+  /** Docusaurus number prefixes ({@code 01-intro.md}) order items and are dropped from ids. */
+  private static final Pattern NUMBER_PREFIX =
+      Pattern.compile("^(\\d+)\\s*[-_.]+\\s*(?=[^-_.\\s])");
+  private static final Set<String> INDEX_NAMES = Set.of("index", "readme");
+
   /**
    * Recursively parses sidebar items from a Docusaurus sidebar structure.
    * @param items The sidebar items (List or Map structure from JS/TS/JSON)
    * @return List of SidebarItem objects representing the sidebar hierarchy
    */
   public static List<SidebarItem> parseSidebarItems(Object items) {
+    return parseSidebarItems(items, null, null);
+  }
+
+  /**
+   * Recursively parses sidebar items, expanding {@code autogenerated} entries. They are ordered
+   * as Docusaurus orders them, from the source docs' front matter and {@code _category_} files;
+   * without source docs they mirror the built docs directory alphabetically.
+   * @param items The sidebar items (List or Map structure from JS/TS/JSON)
+   * @param docsDir Built docs directory used for autogenerated entries, or null to skip them
+   * @param sourceDocsDir Markdown docs directory the site was built from, or null if unavailable
+   * @return List of SidebarItem objects representing the sidebar hierarchy
+   */
+  public static List<SidebarItem> parseSidebarItems(
+      Object items, Path docsDir, Path sourceDocsDir) {
     List<SidebarItem> result = new ArrayList<>();
+    // Shorthand form: { "Category label": [items...] }
+    if (items instanceof Map<?, ?> shorthand) {
+      for (Map.Entry<?, ?> entry : shorthand.entrySet()) {
+        List<SidebarItem> children = parseSidebarItems(entry.getValue(), docsDir, sourceDocsDir);
+        result.add(new SidebarItem(String.valueOf(entry.getKey()), children));
+      }
+      return result;
+    }
     // If items is a list, iterate and parse each item
     if (items instanceof List<?> list) {
       for (Object item : list) {
@@ -29,24 +64,252 @@ public class SidebarParser {
             String label = (String) map.get("label");
             // Extract link if present (for category navigation)
             String link = Optional.ofNullable(map.get("link"))
+                .filter(l -> l instanceof Map<?, ?>)
                 .map(l -> ((Map<?, ?>) l).get("id"))
                 .map(Object::toString)
                 .orElse(null);
             // Recursively parse children
-            List<SidebarItem> children = parseSidebarItems(map.get("items"));
+            List<SidebarItem> children =
+                parseSidebarItems(map.get("items"), docsDir, sourceDocsDir);
             SidebarItem category = new SidebarItem(label, children);
             if (link != null) {
               category.label = link;
             }
             result.add(category);
-          } else if ("doc".equals(type) && map.containsKey("id")) {
+          } else if (("doc".equals(type) || "ref".equals(type)) && map.containsKey("id")) {
             // Doc type: add as leaf
             result.add(new SidebarItem((String) map.get("id"), Collections.emptyList()));
+          } else if ("autogenerated".equals(type) && docsDir != null) {
+            String dirName = Objects.toString(map.get("dirName"), ".");
+            if (sourceDocsDir != null && Files.isDirectory(sourceDocsDir.resolve(dirName))) {
+              // Autogenerated: the source docs carry the ordering Docusaurus uses
+              Path dir = sourceDocsDir.resolve(dirName).normalize();
+              result.addAll(autogenerateFromSource(sourceDocsDir, dir));
+            } else {
+              // Autogenerated: mirror the built docs folder structure
+              result.addAll(autogenerate(docsDir, docsDir.resolve(dirName).normalize()));
+            }
+          } else if (type == null && !map.containsKey("type") && !map.isEmpty()) {
+            // Nested shorthand category inside a list
+            result.addAll(parseSidebarItems(map, docsDir, sourceDocsDir));
           }
+          // "link" and "html" items point outside the docs and have no page to render
         }
       }
     }
     // Return the parsed sidebar hierarchy
     return result;
   }
+
+  /**
+   * Builds sidebar items from a source docs directory the way Docusaurus does: items are sorted
+   * by {@code sidebar_position} (docs) or {@code _category_.json}/{@code .yml} {@code position}
+   * (directories), falling back to number prefixes; items without a position follow in name
+   * order. Files and directories starting with {@code _} are not docs. A directory's index doc
+   * ({@code index}, {@code README} or named like the directory) is listed first.
+   * @param sourceDocsDir Markdown docs root, which doc ids are relative to
+   * @param dir Directory to expand
+   * @return Items whose labels are doc routes relative to the built docs directory
+   */
+  private static List<SidebarItem> autogenerateFromSource(Path sourceDocsDir, Path dir) {
+    if (!Files.isDirectory(dir)) return Collections.emptyList();
+    List<Path> entries;
+    try (Stream<Path> stream = Files.list(dir)) {
+      entries = stream.sorted().collect(Collectors.toList());
+    } catch (IOException e) {
+      return Collections.emptyList();
+    }
+
+    String route = routeOf(sourceDocsDir, dir);
+    SidebarItem indexDoc = null;
+    List<SidebarItem> items = new ArrayList<>();
+    List<Double> positions = new ArrayList<>();
+    for (Path entry : entries) {
+      String name = entry.getFileName().toString();
+      if (name.startsWith("_") || name.startsWith(".")) continue;
+      if (Files.isDirectory(entry)) {
+        List<SidebarItem> children = autogenerateFromSource(sourceDocsDir, entry);
+        if (children.isEmpty()) continue;
+        Map<String, Object> category = readCategory(entry);
+        String label = Objects.toString(category.get("label"), stripNumberPrefix(name));
+        items.add(new SidebarItem(label, children));
+        positions.add(position(category.get("position"), name));
+      } else if (name.endsWith(".md") || name.endsWith(".mdx")) {
+        Map<String, Object> frontMatter = readFrontMatter(entry);
+        String base = name.substring(0, name.lastIndexOf('.'));
+        String id = Objects.toString(frontMatter.get("id"), stripNumberPrefix(base));
+        Object slug = frontMatter.get("slug");
+        if (slug != null) {
+          String s = slug.toString();
+          String docRoute = s.startsWith("/") ? s.substring(1) : join(route, s);
+          items.add(new SidebarItem(docRoute.isEmpty() ? "index" : docRoute, null));
+        } else if (isIndexDoc(id, dir)) {
+          indexDoc = new SidebarItem(route.isEmpty() ? "index" : route, null);
+          continue;
+        } else {
+          items.add(new SidebarItem(join(route, id), null));
+        }
+        positions.add(position(frontMatter.get("sidebar_position"), base));
+      }
+    }
+
+    // Stable sort: positioned items first, by position; the rest keep name order
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < items.size(); i++) order.add(i);
+    order.sort(
+        Comparator.comparing(
+            positions::get, Comparator.nullsLast(Comparator.<Double>naturalOrder())));
+    List<SidebarItem> result = new ArrayList<>();
+    if (indexDoc != null) result.add(indexDoc);
+    for (int i : order) result.add(items.get(i));
+    return result;
+  }
+
+  /** A doc is its directory's index when named index, README or like the directory itself. */
+  private static boolean isIndexDoc(String id, Path dir) {
+    String lower = id.toLowerCase(Locale.ROOT);
+    Path dirName = dir.getFileName();
+    return INDEX_NAMES.contains(lower)
+        || (dirName != null
+            && lower.equals(stripNumberPrefix(dirName.toString()).toLowerCase(Locale.ROOT)));
+  }
+
+  /** Route of a source directory below the docs root, number prefixes removed. */
+  private static String routeOf(Path sourceDocsDir, Path dir) {
+    List<String> segments = new ArrayList<>();
+    for (Path segment : sourceDocsDir.relativize(dir)) {
+      String name = segment.toString();
+      if (!name.isEmpty()) segments.add(stripNumberPrefix(name));
+    }
+    return String.join("/", segments);
+  }
+
+  private static String join(String route, String name) {
+    return route.isEmpty() ? name : route + "/" + name;
+  }
+
+  private static String stripNumberPrefix(String name) {
+    Matcher m = NUMBER_PREFIX.matcher(name);
+    return m.find() ? name.substring(m.end()) : name;
+  }
+
+  /** An explicit position, else the number prefix of the file name, else null. */
+  private static Double position(Object explicit, String name) {
+    if (explicit != null) {
+      try {
+        return Double.valueOf(explicit.toString());
+      } catch (NumberFormatException e) {
+        // Not a number; Docusaurus would reject it, fall back to the prefix
+      }
+    }
+    Matcher m = NUMBER_PREFIX.matcher(name);
+    return m.find() ? Double.valueOf(m.group(1)) : null;
+  }
+
+  /** Reads {@code _category_.json} or {@code _category_.yml}, or returns an empty map. */
+  private static Map<String, Object> readCategory(Path dir) {
+    try {
+      Path json = dir.resolve("_category_.json");
+      if (Files.isRegularFile(json)) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> category = new ObjectMapper().readValue(json.toFile(), Map.class);
+        return category;
+      }
+      for (String name : List.of("_category_.yml", "_category_.yaml")) {
+        Path yaml = dir.resolve(name);
+        if (Files.isRegularFile(yaml)) return readYamlKeys(Files.readAllLines(yaml));
+      }
+    } catch (IOException e) {
+      // Unreadable metadata: the directory keeps its name and name order
+    }
+    return Collections.emptyMap();
+  }
+
+  /** Reads the front matter block at the top of a Markdown file. */
+  private static Map<String, Object> readFrontMatter(Path doc) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(doc);
+    } catch (IOException e) {
+      return Collections.emptyMap();
+    }
+    if (lines.isEmpty() || !lines.get(0).trim().equals("---")) return Collections.emptyMap();
+    int end = 1;
+    while (end < lines.size() && !lines.get(end).trim().equals("---")) end++;
+    return readYamlKeys(lines.subList(1, Math.min(end, lines.size())));
+  }
+
+  /** Top-level {@code key: value} pairs of a YAML block; nested values are skipped. */
+  private static Map<String, Object> readYamlKeys(List<String> lines) {
+    Map<String, Object> values = new HashMap<>();
+    for (String line : lines) {
+      if (line.isEmpty() || Character.isWhitespace(line.charAt(0)) || line.startsWith("#")) {
+        continue;
+      }
+      int colon = line.indexOf(':');
+      if (colon <= 0) continue;
+      String value = line.substring(colon + 1).trim();
+      if (value.length() >= 2
+          && (value.startsWith("'") && value.endsWith("'")
+              || value.startsWith("\"") && value.endsWith("\""))) {
+        value = value.substring(1, value.length() - 1);
+      }
+      if (!value.isEmpty()) values.put(line.substring(0, colon).trim(), value);
+    }
+    return values;
+  }
+
+  /**
+   * Builds sidebar items from a built docs directory, alphabetically.
+   * HTML files become docs; directories become categories, except a directory holding only an
+   * index.html, which is the doc itself (Docusaurus trailing-slash output). Tag listing pages
+   * are routes of the docs plugin but not docs, so they are left out.
+   */
+  private static List<SidebarItem> autogenerate(Path docsDir, Path dir) {
+    if (!Files.isDirectory(dir)) return Collections.emptyList();
+    List<Path> entries;
+    try (Stream<Path> stream = Files.list(dir)) {
+      entries = stream.sorted().collect(Collectors.toList());
+    } catch (IOException e) {
+      return Collections.emptyList();
+    }
+
+    List<SidebarItem> result = new ArrayList<>();
+    for (Path entry : entries) {
+      String name = entry.getFileName().toString();
+      if (name.equals("tags") || name.equals("tags.html")) continue;
+      if (Files.isDirectory(entry)) {
+        if (isIndexOnly(entry)) {
+          result.add(new SidebarItem(docId(docsDir, entry), Collections.emptyList()));
+          continue;
+        }
+        List<SidebarItem> children = autogenerate(docsDir, entry);
+        if (!children.isEmpty()) {
+          result.add(new SidebarItem(name, children));
+        }
+      } else if (name.endsWith(".html")) {
+        Path doc =
+            "index.html".equals(name)
+                ? dir
+                : entry.resolveSibling(name.substring(0, name.length() - ".html".length()));
+        if (!doc.equals(docsDir)) {
+          result.add(new SidebarItem(docId(docsDir, doc), Collections.emptyList()));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean isIndexOnly(Path dir) {
+    try (Stream<Path> stream = Files.list(dir)) {
+      List<Path> entries = stream.collect(Collectors.toList());
+      return entries.size() == 1 && entries.get(0).getFileName().toString().equals("index.html");
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static String docId(Path docsDir, Path doc) {
+    return docsDir.relativize(doc).toString().replace('\\', '/');
+  }
 }
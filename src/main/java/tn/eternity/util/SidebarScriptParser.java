@@ -0,0 +1,259 @@
+package tn.eternity.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a Docusaurus sidebars.ts/sidebars.js file without Node.js.
+ * Only the object-literal subset used by sidebar configs is supported: strings, numbers,
+ * booleans, null, arrays and nested objects. The result has the same shape Jackson produces
+ * for the equivalent JSON, so it can be handed straight to {@link SidebarParser}.
+ */
+public class SidebarScriptParser {
+
+  private static final Pattern EXPORT =
+      Pattern.compile("(?:export\\s+default|module\\.exports\\s*=)\\s*([A-Za-z_$][\\w$]*|\\{)");
+
+  private final String source;
+  private int pos;
+
+  private SidebarScriptParser(String source, int pos) {
+    this.source = source;
+    this.pos = pos;
+  }
+
+  /**
+   * Parses the exported sidebars object from a sidebars.ts/js file.
+   *
+   * @param file Path to the sidebar source file
+   * @return Map of sidebar name to its (List/Map/String) item structure
+   * @throws IOException if the file cannot be read or uses unsupported syntax
+   */
+  public static Map<String, Object> parse(Path file) throws IOException {
+    return parse(Files.readString(file));
+  }
+
+  /**
+   * Parses the exported sidebars object from sidebars.ts/js source code.
+   *
+   * @param source The TypeScript or JavaScript source
+   * @return Map of sidebar name to its (List/Map/String) item structure
+   * @throws IOException if no exported object literal is found or it uses unsupported syntax
+   */
+  public static Map<String, Object> parse(String source) throws IOException {
+    String code = stripComments(source);
+    Matcher export = EXPORT.matcher(code);
+    if (!export.find()) {
+      throw new IOException("No 'export default' or 'module.exports' found in sidebar config");
+    }
+    int start;
+    if ("{".equals(export.group(1))) {
+      start = export.start(1);
+    } else {
+      // export default sidebars; -> find "const sidebars[: Type] = {"
+      Matcher decl =
+          Pattern.compile(
+                  "(?:const|let|var)\\s+" + Pattern.quote(export.group(1)) + "\\s*(?::[^=]+)?=\\s*")
+              .matcher(code);
+      if (!decl.find()) {
+        throw new IOException("Declaration of '" + export.group(1) + "' not found in sidebar config");
+      }
+      start = decl.end();
+    }
+
+    SidebarScriptParser parser = new SidebarScriptParser(code, start);
+    parser.skipWhitespace();
+    if (parser.peek() != '{') {
+      throw parser.error("Expected sidebars object literal");
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, Object> sidebars = (Map<String, Object>) parser.parseValue();
+    return sidebars;
+  }
+
+  /** Replaces // and /* comments with whitespace, leaving string literals untouched. */
+  static String stripComments(String source) {
+    StringBuilder out = new StringBuilder(source.length());
+    int i = 0;
+    while (i < source.length()) {
+      char c = source.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        int end = i + 1;
+        while (end < source.length() && source.charAt(end) != c) {
+          end += source.charAt(end) == '\\' ? 2 : 1;
+        }
+        end = Math.min(end + 1, source.length());
+        out.append(source, i, end);
+        i = end;
+      } else if (source.startsWith("//", i)) {
+        while (i < source.length() && source.charAt(i) != '\n') i++;
+      } else if (source.startsWith("/*", i)) {
+        int end = source.indexOf("*/", i + 2);
+        end = end < 0 ? source.length() : end + 2;
+        // Keep newlines so error positions still match the original line numbers
+        for (int j = i; j < end; j++) out.append(source.charAt(j) == '\n' ? '\n' : ' ');
+        i = end;
+      } else {
+        out.append(c);
+        i++;
+      }
+    }
+    return out.toString();
+  }
+
+  private Object parseValue() throws IOException {
+    skipWhitespace();
+    char c = peek();
+    if (c == '{') return parseObject();
+    if (c == '[') return parseArray();
+    if (c == '\'' || c == '"' || c == '`') return parseString();
+    if (c == '-' || Character.isDigit(c)) return parseNumber();
+    String word = parseIdentifier();
+    switch (word) {
+      case "true":
+        return Boolean.TRUE;
+      case "false":
+        return Boolean.FALSE;
+      case "null":
+      case "undefined":
+        return null;
+      default:
+        throw error("Unsupported expression '" + word + "'");
+    }
+  }
+
+  private Map<String, Object> parseObject() throws IOException {
+    expect('{');
+    Map<String, Object> map = new LinkedHashMap<>();
+    while (true) {
+      skipWhitespace();
+      if (peek() == '}') break;
+      String key;
+      char c = peek();
+      if (c == '\'' || c == '"' || c == '`') {
+        key = parseString();
+      } else if (Character.isDigit(c)) {
+        key = parseNumber().toString();
+      } else {
+        key = parseIdentifier();
+      }
+      skipWhitespace();
+      expect(':');
+      map.put(key, parseValue());
+      if (!skipSeparator('}')) break;
+    }
+    expect('}');
+    return map;
+  }
+
+  private List<Object> parseArray() throws IOException {
+    expect('[');
+    List<Object> list = new ArrayList<>();
+    while (true) {
+      skipWhitespace();
+      if (peek() == ']') break;
+      list.add(parseValue());
+      if (!skipSeparator(']')) break;
+    }
+    expect(']');
+    return list;
+  }
+
+  /** Consumes a ',' (trailing commas allowed); returns false when the closing char follows. */
+  private boolean skipSeparator(char close) throws IOException {
+    skipWhitespace();
+    if (peek() == ',') {
+      pos++;
+      return true;
+    }
+    if (peek() != close) throw error("Expected ',' or '" + close + "'");
+    return false;
+  }
+
+  private String parseString() throws IOException {
+    char quote = source.charAt(pos++);
+    StringBuilder sb = new StringBuilder();
+    while (pos < source.length()) {
+      char c = source.charAt(pos++);
+      if (c == quote) return sb.toString();
+      if (quote == '`' && c == '$' && peek() == '{') {
+        throw error("Template literal interpolation is not supported");
+      }
+      if (c != '\\') {
+        sb.append(c);
+        continue;
+      }
+      if (pos >= source.length()) break;
+      char e = source.charAt(pos++);
+      switch (e) {
+        case 'n' -> sb.append('\n');
+        case 't' -> sb.append('\t');
+        case 'r' -> sb.append('\r');
+        case 'u' -> {
+          if (pos + 4 > source.length()) throw error("Invalid unicode escape");
+          sb.append((char) Integer.parseInt(source.substring(pos, pos + 4), 16));
+          pos += 4;
+        }
+        case '\n' -> {} // line continuation
+        default -> sb.append(e);
+      }
+    }
+    throw error("Unterminated string literal");
+  }
+
+  private Number parseNumber() throws IOException {
+    int start = pos;
+    if (peek() == '-') pos++;
+    while (pos < source.length()
+        && (Character.isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+      pos++;
+    }
+    String text = source.substring(start, pos);
+    try {
+      return text.contains(".") ? Double.valueOf(text) : Integer.valueOf(text);
+    } catch (NumberFormatException e) {
+      throw error("Invalid number '" + text + "'");
+    }
+  }
+
+  private String parseIdentifier() throws IOException {
+    int start = pos;
+    while (pos < source.length()
+        && (Character.isLetterOrDigit(source.charAt(pos))
+            || source.charAt(pos) == '_'
+            || source.charAt(pos) == '$')) {
+      pos++;
+    }
+    if (start == pos) throw error("Unexpected character '" + peek() + "'");
+    return source.substring(start, pos);
+  }
+
+  private void expect(char c) throws IOException {
+    skipWhitespace();
+    if (peek() != c) throw error("Expected '" + c + "'");
+    pos++;
+  }
+
+  private char peek() {
+    return pos < source.length() ? source.charAt(pos) : '\0';
+  }
+
+  private void skipWhitespace() {
+    while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) pos++;
+  }
+
+  private IOException error(String message) {
+    int line = 1;
+    for (int i = 0; i < Math.min(pos, source.length()); i++) {
+      if (source.charAt(i) == '\n') line++;
+    }
+    return new IOException(message + " at line " + line + " of sidebar config");
+  }
+}
@@ -0,0 +1,257 @@
+package tn.eternity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineNode;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tn.eternity.model.GenerationRequest;
+import tn.eternity.model.GenerationResult;
+import tn.eternity.model.PdfManifest;
+import tn.eternity.util.PdfPatcher;
+import tn.eternity.util.RenderCache;
+
+/**
+ * Generates a small sidebar site, edits it, and runs {@code --update}: the result must read like a
+ * full generation of the edited site while leaving the original bytes untouched, and the cases
+ * that cannot be patched must fall back to rewriting the whole PDF.
+ */
+class GenerationJobUpdateTest {
+
+  private static final String SIDEBAR =
+      "{\"docsSidebar\": [\"alpha\","
+          + " {\"type\": \"category\", \"label\": \"Guides\", \"items\": [\"beta\", \"gamma\"]},"
+          + " \"delta\"]}";
+
+  @TempDir Path dir;
+
+  private Path pdf;
+  private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+  @BeforeEach
+  void createSite() throws IOException {
+    for (String page : List.of("alpha", "beta", "gamma", "delta")) {
+      writePage(page, page + " body");
+    }
+    Files.writeString(dir.resolve("sidebar.json"), SIDEBAR);
+    Files.createDirectories(dir.resolve("out"));
+    pdf = dir.resolve("out/site.pdf");
+  }
+
+  @Test
+  void updateMatchesFullGenerationAndOnlyAppends() throws Exception {
+    generate(request(pdf, false));
+    byte[] original = Files.readAllBytes(pdf);
+
+    // Change beta, move delta to the front and add epsilon
+    writePage("beta", "beta body, second edition");
+    writePage("epsilon", "epsilon body");
+    Files.writeString(
+        dir.resolve("sidebar.json"),
+        "{\"docsSidebar\": [\"delta\", \"alpha\", {\"type\": \"category\", \"label\": \"Guides\","
+            + " \"items\": [\"beta\", \"gamma\", \"epsilon\"]}]}");
+    GenerationResult result = generate(request(pdf, true));
+    assertEquals(5, result.pages);
+    assertEquals(3, result.reusedPages);
+    assertTrue(log().contains("Incremental update appended"), log());
+
+    byte[] updated = Files.readAllBytes(pdf);
+    assertTrue(updated.length > original.length);
+    assertArrayEquals(original, Arrays.copyOf(updated, original.length));
+
+    Path full = dir.resolve("out/full.pdf");
+    generate(request(full, false));
+    try (PDDocument patched = PDDocument.load(pdf.toFile());
+        PDDocument expected = PDDocument.load(full.toFile())) {
+      assertEquals(pageTexts(expected), pageTexts(patched));
+      assertEquals(outline(expected), outline(patched));
+
+      // Kept pages in their old place are read from the original bytes, everything else from
+      // the update
+      List<String> texts = pageTexts(patched);
+      for (int i = 0; i < texts.size(); i++) {
+        boolean inPlace = texts.get(i).contains("alpha") || texts.get(i).contains("gamma");
+        long offset = offsetOf(patched, patched.getPage(i));
+        assertEquals(inPlace, offset < original.length, texts.get(i) + " at " + offset);
+      }
+    }
+  }
+
+  @Test
+  void unchangedSiteWritesNothing() throws Exception {
+    generate(request(pdf, false));
+    byte[] original = Files.readAllBytes(pdf);
+
+    try (PdfPatcher patcher = new PdfPatcher(pdf.toFile())) {
+      patcher.setPages(patcher.originalPages());
+      assertFalse(patcher.hasChanges());
+    }
+
+    GenerationResult result = generate(request(pdf, true));
+    assertEquals(4, result.reusedPages);
+    assertTrue(log().contains("PDF is up to date"), log());
+    assertArrayEquals(original, Files.readAllBytes(pdf));
+  }
+
+  @Test
+  void missingManifestRewritesThePdf() throws Exception {
+    generate(request(pdf, false));
+    Files.delete(Path.of(pdf + ".manifest.json"));
+
+    assertFullRewrite(request(pdf, true), "no previous PDF and manifest");
+  }
+
+  @Test
+  void changedCssRewritesThePdf() throws Exception {
+    Path css = dir.resolve("print.css");
+    Files.writeString(css, "body { font-size: 10pt; }");
+    generate(request(pdf, false).css(css.toString()));
+    Files.writeString(css, "body { font-size: 12pt; color: #333; }");
+
+    assertFullRewrite(
+        request(pdf, true).css(css.toString()), "print CSS or outline settings changed");
+  }
+
+  @Test
+  void changedNoTocRewritesThePdf() throws Exception {
+    generate(request(pdf, false));
+
+    assertFullRewrite(request(pdf, true).noToc(true), "print CSS or outline settings changed");
+    try (PDDocument document = PDDocument.load(pdf.toFile())) {
+      assertNull(document.getDocumentCatalog().getDocumentOutline());
+    }
+  }
+
+  @Test
+  void doubledFileRewritesThePdf() throws Exception {
+    generate(request(pdf, false));
+    long baseBytes = Files.size(pdf);
+
+    // Every update leaves the replaced page behind, until the file is twice its rewritten size
+    for (int edition = 2; Files.size(pdf) <= 2 * baseBytes; edition++) {
+      assertTrue(edition < 100, "file never doubled");
+      writePage("beta", "beta body, edition " + edition);
+      assertEquals(3, generate(request(pdf, true)).reusedPages);
+    }
+    writePage("beta", "beta body, final edition");
+
+    assertFullRewrite(request(pdf, true), "earlier updates doubled the file size");
+    assertTrue(Files.size(pdf) < 2 * baseBytes);
+  }
+
+  /** Runs an update that must regenerate everything and checks the rewritten PDF's manifest. */
+  private void assertFullRewrite(GenerationRequest.Builder update, String reason)
+      throws Exception {
+    GenerationResult result = generate(update);
+    assertTrue(log().contains("Generating the whole PDF: " + reason), log());
+    assertEquals(0, result.reusedPages);
+    assertEquals(4, result.pages);
+
+    PdfManifest manifest =
+        new ObjectMapper().readValue(new File(pdf + ".manifest.json"), PdfManifest.class);
+    assertEquals(Files.size(pdf), manifest.baseBytes);
+    try (PDDocument document = PDDocument.load(pdf.toFile())) {
+      assertEquals(4, document.getNumberOfPages());
+    }
+  }
+
+  private GenerationRequest.Builder request(Path output, boolean update) {
+    return GenerationRequest.builder()
+        .input(dir.resolve("input").toString())
+        .sidebar(dir.resolve("sidebar.json").toString())
+        .output(output.toString())
+        .update(update);
+  }
+
+  private GenerationResult generate(GenerationRequest.Builder request) throws Exception {
+    log.reset();
+    PrintStream out = new PrintStream(log, true, StandardCharsets.UTF_8);
+    GenerationResult result = new GenerationJob(request.build(), new RenderCache(0), out).run();
+    assertEquals(List.of(), result.pageErrors);
+    return result;
+  }
+
+  private String log() {
+    return log.toString(StandardCharsets.UTF_8);
+  }
+
+  private void writePage(String name, String body) throws IOException {
+    Path file = dir.resolve("input/docs/" + name + ".html");
+    Files.createDirectories(file.getParent());
+    Files.writeString(
+        file,
+        "<html><head><title>"
+            + name
+            + " | Site</title></head><body><h1 id=\""
+            + name
+            + "\">"
+            + name
+            + "</h1><p>"
+            + body
+            + "</p></body></html>");
+  }
+
+  private static List<String> pageTexts(PDDocument document) throws IOException {
+    List<String> texts = new ArrayList<>();
+    PDFTextStripper stripper = new PDFTextStripper();
+    for (int page = 1; page <= document.getNumberOfPages(); page++) {
+      stripper.setStartPage(page);
+      stripper.setEndPage(page);
+      texts.add(stripper.getText(document).trim());
+    }
+    return texts;
+  }
+
+  /** Outline items depth first, as "title@page index", with a category's items nested in []. */
+  private static String outline(PDDocument document) throws IOException {
+    return describe(document.getDocumentCatalog().getDocumentOutline(), document);
+  }
+
+  private static String describe(PDOutlineNode node, PDDocument document) throws IOException {
+    List<String> parts = new ArrayList<>();
+    for (PDOutlineItem item : node.children()) {
+      int page = -1;
+      if (item.getDestination() instanceof PDPageDestination destination) {
+        page = document.getPages().indexOf(destination.getPage());
+      }
+      String children = item.hasChildren() ? describe(item, document) : "";
+      parts.add(item.getTitle() + "@" + page + children);
+    }
+    return parts.toString();
+  }
+
+  /** File offset of the object a page dictionary was read from. */
+  private static long offsetOf(PDDocument document, PDPage page) throws IOException {
+    COSDocument cos = document.getDocument();
+    for (Map.Entry<COSObjectKey, Long> entry : cos.getXrefTable().entrySet()) {
+      COSBase object = cos.getObjectFromPool(entry.getKey()).getObject();
+      if (object == page.getCOSObject()) return entry.getValue();
+    }
+    throw new AssertionError("page object not found in the cross-reference table");
+  }
+}
@@ -0,0 +1,44 @@
+package tn.eternity.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Forces a page over a tiny render budget so that both real attempts are abandoned and the
+ * placeholder page is drawn, with a title the standard-14 fonts cannot encode.
+ */
+class PageRendererTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void placeholderTitleOutsideWinAnsiStillRenders() throws IOException {
+    StringBuilder html = new StringBuilder("<html><head><title>Slow</title></head><body>");
+    for (int i = 0; i < 3000; i++) {
+      html.append("<p>Paragraph ").append(i).append(" keeps the layout busy.</p>");
+    }
+    Path page = dir.resolve("slow.html");
+    Files.writeString(page, html.append("</body></html>"));
+
+    try (PageRenderer renderer = new PageRenderer(null, 1, 0)) {
+      PageRenderer.RenderResult result = renderer.render(page, "Обзор → 概要 guide");
+      try {
+        assertEquals(PageRenderer.Profile.PLACEHOLDER.name(), result.timing.profile);
+        assertNotNull(result.overrun);
+        assertEquals(1, result.pages.size());
+        String text = new PDFTextStripper().getText(result.document);
+        assertTrue(text.contains("????? ? ?? guide"), text);
+      } finally {
+        result.document.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,345 @@
+package tn.eternity.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Linearizes a small three-page PDF and checks the linearization dictionary and both hint
+ * tables against the object offsets actually found in the file (ISO 32000-1, Annex F).
+ */
+class PdfLinearizerTest {
+
+  private static final Pattern DICTIONARY =
+      Pattern.compile(
+          "(\\d+) 0 obj\\n<< /Linearized 1 /L (\\d+) +/H \\[ (\\d+) +(\\d+) +\\] /O (\\d+)"
+              + " /E (\\d+) +/N (\\d+) /T (\\d+) *>>");
+  private static final Pattern XREF_SUBSECTION = Pattern.compile("xref\\n(\\d+) (\\d+)\\n");
+  private static final Pattern PREV = Pattern.compile("/Prev (\\d+)");
+  private static final Pattern HINT_HEAD =
+      Pattern.compile("\\d+ 0 obj\\n<< /S (\\d+) /Length (\\d+) >>\\nstream\\n");
+
+  @TempDir static Path dir;
+
+  private static byte[] data;
+  private static String text;
+  private static Matcher linearized;
+  /** Object number to offset, from both cross-reference sections. */
+  private static final Map<Integer, Long> offsets = new TreeMap<>();
+  private static final List<Integer> pageNumbers = new ArrayList<>();
+  private static final Map<String, Integer> fontNumbers = new HashMap<>();
+  private static long mainXrefOffset;
+
+  @BeforeAll
+  static void linearizeSample() throws IOException {
+    File source = dir.resolve("source.pdf").toFile();
+    File target = dir.resolve("linearized.pdf").toFile();
+    try (PDDocument document = new PDDocument()) {
+      // Helvetica is used by every page, Courier only by the pages after the first
+      addPage(document, PDType1Font.HELVETICA, null);
+      addPage(document, PDType1Font.HELVETICA, PDType1Font.COURIER);
+      addPage(document, PDType1Font.HELVETICA, PDType1Font.COURIER);
+      document.save(source);
+    }
+    PdfLinearizer.linearize(source, target);
+
+    data = Files.readAllBytes(target.toPath());
+    text = new String(data, StandardCharsets.ISO_8859_1);
+    linearized = DICTIONARY.matcher(text);
+    assertTrue(linearized.find(), "linearization dictionary");
+    assertTrue(linearized.start() < 1024, "linearization dictionary within the first 1024 bytes");
+
+    Matcher prev = PREV.matcher(text);
+    assertTrue(prev.find(), "first-page trailer has /Prev");
+    mainXrefOffset = Long.parseLong(prev.group(1));
+    readXref(text.indexOf("xref\n", linearized.end()));
+    readXref((int) mainXrefOffset);
+    for (Map.Entry<Integer, Long> entry : offsets.entrySet()) {
+      assertTrue(
+          text.startsWith(entry.getKey() + " 0 obj", entry.getValue().intValue()),
+          "xref entry of object " + entry.getKey());
+    }
+
+    try (PDDocument document = PDDocument.load(target)) {
+      assertEquals(3, document.getNumberOfPages());
+      for (PDPage page : document.getPages()) {
+        pageNumbers.add(numberOf(document, COSName.PAGE, page.getCOSObject()));
+      }
+      for (COSObject font : document.getDocument().getObjectsByType(COSName.FONT)) {
+        if (font.getObject() instanceof COSDictionary dict) {
+          fontNumbers.put(dict.getNameAsString(COSName.BASE_FONT), (int) font.getObjectNumber());
+        }
+      }
+    }
+  }
+
+  @Test
+  void fileLengthMatches() {
+    assertEquals(data.length, group(2));
+  }
+
+  @Test
+  void pageCountMatches() {
+    assertEquals(3, group(7));
+  }
+
+  @Test
+  void firstPageObjectIsNamed() {
+    assertEquals(pageNumbers.get(0), (int) group(5));
+  }
+
+  @Test
+  void hintStreamLocationMatches() {
+    long hintOffset = group(3);
+    long hintLength = group(4);
+    int hintNumber = Integer.parseInt(linearized.group(1)) + 2;
+    assertEquals(offsets.get(hintNumber), hintOffset);
+    assertTrue(HINT_HEAD.matcher(text).region((int) hintOffset, text.length()).lookingAt());
+    // The first page's objects follow the hint stream directly
+    assertEquals(hintOffset + hintLength, (long) offsets.get(pageNumbers.get(0)));
+  }
+
+  @Test
+  void firstPageEndMatches() {
+    // /E is the end of the first page section: the first object of the remaining pages
+    int firstPageNumber = pageNumbers.get(0);
+    long end = group(6);
+    for (Map.Entry<Integer, Long> entry : offsets.entrySet()) {
+      if (entry.getKey() >= firstPageNumber) {
+        assertTrue(entry.getValue() < end, "first page object " + entry.getKey() + " before /E");
+      }
+    }
+    assertEquals(offsets.get(pageNumbers.get(1)), end);
+  }
+
+  @Test
+  void mainXrefLocationMatches() {
+    long t = group(8);
+    assertTrue(text.startsWith("xref\n0 ", (int) mainXrefOffset));
+    assertTrue(Character.isWhitespace(text.charAt((int) t)), "/T points at white-space");
+    assertEquals(mainXrefOffset, text.lastIndexOf("xref", (int) t));
+    assertTrue(text.startsWith("0000000000 65535 f", (int) t + 1));
+  }
+
+  @Test
+  void pageOffsetHintTableMatchesObjects() {
+    long hintLength = group(4);
+    BitReader hint = new BitReader(hintData(), 0);
+    long minObjects = hint.read(32);
+    long firstPageOffset = hint.read(32);
+    int objectBits = (int) hint.read(16);
+    long minLength = hint.read(32);
+    int lengthBits = (int) hint.read(16);
+    hint.read(32);
+    hint.read(16);
+    hint.read(32);
+    hint.read(16);
+    int refCountBits = (int) hint.read(16);
+    int idBits = (int) hint.read(16);
+    hint.read(16);
+    hint.read(16);
+
+    long[] objectCounts = new long[3];
+    long[] pageLengths = new long[3];
+    long[] refCounts = new long[3];
+    for (int i = 0; i < 3; i++) objectCounts[i] = minObjects + hint.read(objectBits);
+    hint.align();
+    for (int i = 0; i < 3; i++) pageLengths[i] = minLength + hint.read(lengthBits);
+    hint.align();
+    for (int i = 0; i < 3; i++) refCounts[i] = hint.read(refCountBits);
+    hint.align();
+    List<List<Long>> refs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      List<Long> ids = new ArrayList<>();
+      for (int r = 0; r < refCounts[i]; r++) ids.add(hint.read(idBits));
+      refs.add(ids);
+    }
+
+    // Offsets in hint tables leave out the primary hint stream itself
+    assertEquals(offsets.get(pageNumbers.get(0)), firstPageOffset + hintLength);
+    assertEquals(group(6) - offsets.get(pageNumbers.get(0)), pageLengths[0]);
+    long pageStart = firstPageOffset + hintLength + pageLengths[0];
+    int number = 1;
+    for (int i = 1; i < 3; i++) {
+      // Each later page section starts with its page object, numbered after the previous one
+      assertEquals(offsets.get(pageNumbers.get(i)), pageStart, "page " + (i + 1) + " offset");
+      assertEquals(number, (int) pageNumbers.get(i), "page " + (i + 1) + " object number");
+      long sectionEnd = offsets.get(number + (int) objectCounts[i] - 1);
+      sectionEnd += objectLength(number + (int) objectCounts[i] - 1);
+      assertEquals(pageStart + pageLengths[i], sectionEnd, "page " + (i + 1) + " length");
+      pageStart += pageLengths[i];
+      number += (int) objectCounts[i];
+    }
+    assertEquals(0, refCounts[0], "the first page references no shared objects");
+
+    // Pages 2 and 3 use Helvetica (a first-page group) and Courier (a shared group)
+    List<Integer> groups = sharedGroups();
+    for (int i = 1; i < 3; i++) {
+      List<Integer> referenced = new ArrayList<>();
+      for (long id : refs.get(i)) referenced.add(groups.get((int) id));
+      assertTrue(referenced.contains(fontNumbers.get("Helvetica")), "page " + (i + 1));
+      assertTrue(referenced.contains(fontNumbers.get("Courier")), "page " + (i + 1));
+    }
+  }
+
+  @Test
+  void sharedObjectHintTableMatchesObjects() {
+    long hintLength = group(4);
+    byte[] hintData = hintData();
+    Matcher head = HINT_HEAD.matcher(text);
+    assertTrue(head.region((int) group(3), text.length()).lookingAt());
+    BitReader hint = new BitReader(hintData, Integer.parseInt(head.group(1)));
+    int firstShared = (int) hint.read(32);
+    long sharedOffset = hint.read(32);
+    int firstPageGroups = (int) hint.read(32);
+    int groupCount = (int) hint.read(32);
+    hint.read(16);
+    long minGroup = hint.read(32);
+    int groupBits = (int) hint.read(16);
+
+    assertEquals(fontNumbers.get("Courier"), firstShared);
+    assertEquals(offsets.get(firstShared), sharedOffset + hintLength);
+    List<Integer> groups = sharedGroups();
+    assertEquals(groups.size(), groupCount);
+    assertEquals(firstPageObjects().size(), firstPageGroups);
+    for (int number : groups) {
+      assertEquals(objectLength(number), minGroup + hint.read(groupBits), "object " + number);
+    }
+  }
+
+  private static void addPage(PDDocument document, PDFont body, PDFont code) throws IOException {
+    PDPage page = new PDPage(PDRectangle.A4);
+    document.addPage(page);
+    try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+      content.beginText();
+      content.setFont(body, 12);
+      content.newLineAtOffset(72, 720);
+      content.showText("Page " + document.getNumberOfPages());
+      if (code != null) {
+        content.setFont(code, 10);
+        content.newLineAtOffset(0, -20);
+        content.showText("shared");
+      }
+      content.endText();
+    }
+  }
+
+  private static int numberOf(PDDocument document, COSName type, Object dictionary)
+      throws IOException {
+    for (COSObject object : document.getDocument().getObjectsByType(type)) {
+      if (object.getObject() == dictionary) return (int) object.getObjectNumber();
+    }
+    throw new AssertionError("No " + type.getName() + " object found");
+  }
+
+  private static void readXref(int offset) {
+    Matcher subsection = XREF_SUBSECTION.matcher(text);
+    assertTrue(subsection.region(offset, text.length()).lookingAt(), "xref at " + offset);
+    int first = Integer.parseInt(subsection.group(1));
+    int count = Integer.parseInt(subsection.group(2));
+    int entry = subsection.end();
+    for (int i = 0; i < count; i++, entry += 20) {
+      if (text.charAt(entry + 17) == 'n') {
+        offsets.put(first + i, Long.parseLong(text.substring(entry, entry + 10)));
+      }
+    }
+  }
+
+  /** Objects of the first page section, by number: the page object and everything after it. */
+  private static List<Integer> firstPageObjects() {
+    List<Integer> numbers = new ArrayList<>();
+    for (int number : offsets.keySet()) {
+      if (number >= pageNumbers.get(0)) numbers.add(number);
+    }
+    return numbers;
+  }
+
+  /** Object numbers of the shared object groups: first page objects, then shared objects. */
+  private static List<Integer> sharedGroups() {
+    List<Integer> groups = new ArrayList<>(firstPageObjects());
+    BitReader header = new BitReader(hintData(), sharedTableOffset());
+    int firstShared = (int) header.read(32);
+    header.read(32);
+    header.read(32);
+    int groupCount = (int) header.read(32);
+    for (int number = firstShared; groups.size() < groupCount; number++) groups.add(number);
+    return groups;
+  }
+
+  private static int sharedTableOffset() {
+    Matcher head = HINT_HEAD.matcher(text);
+    assertTrue(head.region((int) group(3), text.length()).lookingAt());
+    return Integer.parseInt(head.group(1));
+  }
+
+  private static byte[] hintData() {
+    Matcher head = HINT_HEAD.matcher(text);
+    assertTrue(head.region((int) group(3), text.length()).lookingAt());
+    int length = Integer.parseInt(head.group(2));
+    byte[] hint = new byte[length];
+    System.arraycopy(data, head.end(), hint, 0, length);
+    return hint;
+  }
+
+  /** Bytes from an object's offset to the next object or cross-reference section. */
+  private static long objectLength(int number) {
+    long start = offsets.get(number);
+    long end = mainXrefOffset;
+    for (long offset : offsets.values()) {
+      if (offset > start && offset < end) end = offset;
+    }
+    return end - start;
+  }
+
+  private static long group(int group) {
+    return Long.parseLong(linearized.group(group));
+  }
+
+  /** Reads big-endian bit fields, as written by the linearizer. */
+  private static class BitReader {
+    private final byte[] bytes;
+    private long position;
+
+    BitReader(byte[] bytes, int byteOffset) {
+      this.bytes = bytes;
+      this.position = byteOffset * 8L;
+    }
+
+    long read(int bits) {
+      long value = 0;
+      for (int i = 0; i < bits; i++, position++) {
+        int bit = (bytes[(int) (position >>> 3)] >> (7 - (position & 7))) & 1;
+        value = (value << 1) | bit;
+      }
+      return value;
+    }
+
+    void align() {
+      position = (position + 7) & ~7L;
+    }
+  }
+}
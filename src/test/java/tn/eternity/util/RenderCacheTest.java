@@ -0,0 +1,74 @@
+package tn.eternity.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Renders the same page from two built sites through one shared cache, as a batch run does, and
+ * checks that the page is rendered once as long as the resources it links have the same content.
+ */
+class RenderCacheTest {
+
+  private static final String PAGE =
+      "<html><head><title>Shared | Site</title>"
+          + "<link rel=\"stylesheet\" href=\"/assets/css/styles.css\"/></head>"
+          + "<body><article><h1 id=\"shared\">Shared</h1><p>Same text in every site.</p>"
+          + "<img src=\"img/logo.png\"/></article></body></html>";
+
+  @TempDir Path dir;
+
+  @Test
+  void pageSharedByTwoSitesRendersOnce() throws IOException {
+    RenderCache cache = new RenderCache(64L << 20);
+    Path first = site("first", "docs/1.0/page.html", "p { color: #333; }");
+    Path second = site("second", "docs/2.0/page.html", "p { color: #333; }");
+
+    render(cache, first, "docs/1.0/page.html");
+    render(cache, second, "docs/2.0/page.html");
+
+    assertEquals(1, cache.pageMisses(), "renders");
+    assertEquals(1, cache.pageHits(), "cache hits");
+  }
+
+  @Test
+  void differentStylesheetContentRendersAgain() throws IOException {
+    RenderCache cache = new RenderCache(64L << 20);
+    Path first = site("first", "docs/page.html", "p { color: #333; }");
+    Path second = site("second", "docs/page.html", "p { color: #c00; }");
+
+    render(cache, first, "docs/page.html");
+    render(cache, second, "docs/page.html");
+
+    assertEquals(2, cache.pageMisses(), "renders");
+    assertEquals(0, cache.pageHits(), "cache hits");
+  }
+
+  private Path site(String name, String page, String css) throws IOException {
+    Path root = dir.resolve(name);
+    Path html = root.resolve(page);
+    Files.createDirectories(html.getParent().resolve("img"));
+    Files.writeString(html, PAGE);
+    ImageIO.write(
+        new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB),
+        "png",
+        html.getParent().resolve("img/logo.png").toFile());
+    Path stylesheet = root.resolve("assets/css/styles.css");
+    Files.createDirectories(stylesheet.getParent());
+    Files.writeString(stylesheet, css);
+    return root;
+  }
+
+  private static void render(RenderCache cache, Path siteRoot, String page) throws IOException {
+    try (PageRenderer renderer = new PageRenderer(null, 0, 0, cache)) {
+      renderer.setSiteRoot(siteRoot);
+      renderer.render(siteRoot.resolve(page), "Shared").document.close();
+    }
+  }
+}
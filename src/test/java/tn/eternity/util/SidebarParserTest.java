@@ -0,0 +1,117 @@
+package tn.eternity.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tn.eternity.model.SidebarItem;
+
+/**
+ * Parses sidebar structures as {@link SidebarScriptParser} or Jackson produce them and checks the
+ * resulting item tree, including {@code autogenerated} entries expanded from a docs directory.
+ */
+class SidebarParserTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void objectShorthandBecomesCategories() throws IOException {
+    Object sidebar =
+        SidebarScriptParser.parse(
+                "export default { docs: { Basics: ['intro', 'setup'], Advanced: ['tuning'] } };")
+            .get("docs");
+
+    assertEquals(
+        "[Basics[intro, setup], Advanced[tuning]]",
+        describe(SidebarParser.parseSidebarItems(sidebar)));
+  }
+
+  @Test
+  void arrayShorthandNestsCategoriesInsideLists() throws IOException {
+    Object sidebar =
+        SidebarScriptParser.parse(
+                "export default { docs: ['intro', {Guides: ['a', {Deep: ['b']}]}, 'outro'] };")
+            .get("docs");
+
+    assertEquals(
+        "[intro, Guides[a, Deep[b]], outro]", describe(SidebarParser.parseSidebarItems(sidebar)));
+  }
+
+  @Test
+  void docAndRefItemsAreLeavesAndLinksAreSkipped() throws IOException {
+    Object sidebar =
+        SidebarScriptParser.parse(
+                "export default { docs: ["
+                    + "{type: 'doc', id: 'intro', label: 'Start'},"
+                    + "{type: 'ref', id: 'other/shared'},"
+                    + "{type: 'link', label: 'Site', href: 'https://example.com'},"
+                    + "{type: 'html', value: '<hr/>'},"
+                    + "{type: 'category', label: 'More', items: [{type: 'ref', id: 'faq'}]}"
+                    + "] };")
+            .get("docs");
+
+    assertEquals(
+        "[intro, other/shared, More[faq]]", describe(SidebarParser.parseSidebarItems(sidebar)));
+  }
+
+  @Test
+  void autogeneratedFollowsSidebarPositionAndCategoryMetadata() throws IOException {
+    Path source = dir.resolve("docs");
+    write(source.resolve("intro.md"), "---\nsidebar_position: 1\n---\n# Intro");
+    write(source.resolve("zebra.md"), "# No position, so after every positioned item");
+    write(source.resolve("_partial.md"), "Included by other docs, not a doc itself");
+    write(source.resolve("basics/_category_.json"), "{\"label\": \"The Basics\", \"position\": 2}");
+    write(source.resolve("basics/create-a-page.md"), "---\nsidebar_position: 3\n---\n");
+    write(source.resolve("basics/create-a-doc.md"), "---\nsidebar_position: 2\n---\n");
+    write(source.resolve("basics/deploy.md"), "---\nsidebar_position: 10\n---\n");
+    write(source.resolve("basics/index.md"), "# Basics overview");
+    write(source.resolve("02-extras/01-versions.md"), "# Versions");
+    write(source.resolve("02-extras/02-translate.mdx"), "---\nid: i18n\n---\n");
+    write(source.resolve("02-extras/_category_.yml"), "label: 'Extras'\nposition: 1.5\n");
+
+    List<SidebarItem> items =
+        SidebarParser.parseSidebarItems(
+            List.of(Map.of("type", "autogenerated", "dirName", ".")), dir.resolve("build"), source);
+
+    assertEquals(
+        "[intro, Extras[extras/versions, extras/i18n], "
+            + "The Basics[basics, basics/create-a-doc, basics/create-a-page, basics/deploy], "
+            + "zebra]",
+        describe(items));
+  }
+
+  @Test
+  void autogeneratedFromBuildLeavesOutTagPages() throws IOException {
+    Path built = dir.resolve("build/docs");
+    write(built.resolve("intro.html"), "<html></html>");
+    write(built.resolve("guide/setup.html"), "<html></html>");
+    write(built.resolve("guide/usage/index.html"), "<html></html>");
+    write(built.resolve("tags.html"), "<html></html>");
+    write(built.resolve("tags/release.html"), "<html></html>");
+
+    List<SidebarItem> items =
+        SidebarParser.parseSidebarItems(
+            List.of(Map.of("type", "autogenerated", "dirName", ".")), built, null);
+
+    assertEquals("[guide[guide/setup, guide/usage], intro]", describe(items));
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+  }
+
+  private static String describe(List<SidebarItem> items) {
+    List<String> parts = new ArrayList<>();
+    for (SidebarItem item : items) {
+      parts.add(item.isCategory() ? item.label + describe(item.children) : item.label);
+    }
+    return parts.toString();
+  }
+}
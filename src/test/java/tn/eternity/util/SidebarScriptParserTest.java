@@ -0,0 +1,85 @@
+package tn.eternity.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Parses sidebars.ts/js sources in the forms Docusaurus sites use and checks that the result has
+ * the shape Jackson would give the equivalent JSON.
+ */
+class SidebarScriptParserTest {
+
+  @Test
+  void typedConstantExportedByName() throws IOException {
+    String source =
+        "import type {SidebarsConfig} from '@docusaurus/plugin-content-docs';\n"
+            + "// Line comment with 'quotes' and {braces}\n"
+            + "const sidebars: SidebarsConfig = {\n"
+            + "  /* block comment */\n"
+            + "  tutorialSidebar: [{type: 'autogenerated', dirName: '.'}],\n"
+            + "};\n"
+            + "export default sidebars;\n";
+
+    Map<String, Object> sidebars = SidebarScriptParser.parse(source);
+
+    assertEquals(
+        Map.of("tutorialSidebar", List.of(Map.of("type", "autogenerated", "dirName", "."))),
+        sidebars);
+  }
+
+  @Test
+  void moduleExportsObjectLiteral() throws IOException {
+    String source =
+        "module.exports = {\n"
+            + "  docs: ['intro', \"setup\", `usage`,],\n"
+            + "  'api-sidebar': {API: ['api/index']},\n"
+            + "};\n";
+
+    Map<String, Object> sidebars = SidebarScriptParser.parse(source);
+
+    assertEquals(List.of("docs", "api-sidebar"), List.copyOf(sidebars.keySet()));
+    assertEquals(List.of("intro", "setup", "usage"), sidebars.get("docs"));
+    assertEquals(Map.of("API", List.of("api/index")), sidebars.get("api-sidebar"));
+  }
+
+  @Test
+  void scalarsEscapesAndCommentMarkersInStrings() throws IOException {
+    String source =
+        "export default { docs: [{type: 'category', label: 'A // not a comment \\'q\\'',"
+            + " collapsed: false, collapsible: true, customProps: null, position: 2.5,"
+            + " key: 'caf\\u00e9', items: []}] };";
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> category =
+        (Map<String, Object>) ((List<?>) SidebarScriptParser.parse(source).get("docs")).get(0);
+
+    assertEquals("A // not a comment 'q'", category.get("label"));
+    assertEquals(Boolean.FALSE, category.get("collapsed"));
+    assertEquals(Boolean.TRUE, category.get("collapsible"));
+    assertTrue(category.containsKey("customProps"));
+    assertEquals(2.5, category.get("position"));
+    assertEquals("café", category.get("key"));
+    assertEquals(List.of(), category.get("items"));
+  }
+
+  @Test
+  void unsupportedSyntaxReportsTheLine() {
+    String source =
+        "const sidebars = {\n  docs: [\n    require('./other'),\n  ],\n};\n"
+            + "export default sidebars;\n";
+
+    IOException e = assertThrows(IOException.class, () -> SidebarScriptParser.parse(source));
+    assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+  }
+
+  @Test
+  void missingExportIsAnError() {
+    assertThrows(IOException.class, () -> SidebarScriptParser.parse("const sidebars = {};"));
+  }
+}